@@ -1,5 +1,7 @@
 package io.klask.aop.logging;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import io.klask.config.Constants;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -7,31 +9,67 @@ import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
 import javax.inject.Inject;
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Aspect for logging execution of service and repository Spring components.
+ * <p>
+ * In the debug mode, the arguments and the result of each call are logged. In the sampling mode, the latency
+ * of a fraction of the calls is recorded in a timer {@code klask.aspect.<type>.<method>}, the other calls only
+ * cost a random draw. The mode and the sample rate can be changed at runtime. Without klask.aspect.mode, or with
+ * "off", the aspect is not registered at all.
+ * </p>
  */
 @Aspect
 public class LoggingAspect {
 
+    public enum Mode {
+        DEBUG,
+        SAMPLING
+    }
+
+    private static final String METRIC_PREFIX = "klask.aspect";
+
     private final Logger log = LoggerFactory.getLogger(this.getClass());
     ThreadLocal<Integer> count = ThreadLocal.withInitial(() -> new Integer(0));
 
     @Inject
     private Environment env;
 
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private volatile Mode mode;
+
+    private volatile double sampleRate;
+
+    //one timer by method, resolved once
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public LoggingAspect(Mode mode, double sampleRate) {
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+    }
+
     @Pointcut("within(io.klask.repository..*) || within(io.klask.service..*) || within(io.klask.web.rest..*)")
     public void loggingPointcut() {
     }
 
     @AfterThrowing(pointcut = "loggingPointcut()", throwing = "e")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
+        if (mode != Mode.DEBUG) {
+            return;
+        }
         if (env.acceptsProfiles(Constants.SPRING_PROFILE_DEVELOPMENT)) {
             log.error("Exception in {}.{}() with cause = {} and exception {}", joinPoint.getSignature().getDeclaringTypeName(),
                 joinPoint.getSignature().getName(), e.getCause(), e);
@@ -43,23 +81,37 @@ public class LoggingAspect {
 
     @Around("loggingPointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (log.isDebugEnabled()) {
-
-            char[] espaces = new char[count.get().intValue()];
-            Arrays.fill(espaces, ' ');
-            count.set(count.get() + 1);
-            log.debug("{}=>> {}.{}() with argument[s] = {}", new String(espaces), joinPoint.getSignature().getDeclaringTypeName(),
-                joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
+        Mode current = this.mode;
+        if (current == Mode.SAMPLING) {
+            if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return joinPoint.proceed();
+            }
+            Timer.Context context = timer(joinPoint).time();
+            try {
+                return joinPoint.proceed();
+            } finally {
+                context.stop();
+            }
         }
+        if (!log.isDebugEnabled()) {
+            return joinPoint.proceed();
+        }
+        return logDebug(joinPoint);
+    }
+
+    private Object logDebug(ProceedingJoinPoint joinPoint) throws Throwable {
+        char[] espaces = new char[count.get().intValue()];
+        Arrays.fill(espaces, ' ');
+        count.set(count.get() + 1);
+        log.debug("{}=>> {}.{}() with argument[s] = {}", new String(espaces), joinPoint.getSignature().getDeclaringTypeName(),
+            joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
         try {
             Object result = joinPoint.proceed();
-            if (log.isDebugEnabled()) {
-                count.set(count.get() - 1);
-                char[] espaces = new char[count.get().intValue()];
-                Arrays.fill(espaces, ' ');
-                log.debug("{}<<= {}.{}() with result = {}", new String(espaces), joinPoint.getSignature().getDeclaringTypeName(),
-                    joinPoint.getSignature().getName(), result);
-            }
+            count.set(count.get() - 1);
+            espaces = new char[count.get().intValue()];
+            Arrays.fill(espaces, ' ');
+            log.debug("{}<<= {}.{}() with result = {}", new String(espaces), joinPoint.getSignature().getDeclaringTypeName(),
+                joinPoint.getSignature().getName(), result);
             return result;
         } catch (IllegalArgumentException e) {
             log.error("Illegal argument: {} in {}.{}()", Arrays.toString(joinPoint.getArgs()),
@@ -68,4 +120,26 @@ public class LoggingAspect {
             throw e;
         }
     }
+
+    private Timer timer(ProceedingJoinPoint joinPoint) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return timers.computeIfAbsent(signature.getMethod(), method ->
+            metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, signature.getDeclaringTypeName(), method.getName())));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
 }
@@ -1,35 +1,65 @@
 package io.klask.config;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ehcache.InstrumentedEhcache;
+import net.sf.ehcache.Ehcache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.annotation.PreDestroy;
+import javax.inject.Inject;
 
 @SuppressWarnings("unused")
 @Configuration
 @EnableCaching
-@AutoConfigureAfter(value = {MetricsConfiguration.class, DatabaseConfiguration.class})
 public class CacheConfiguration {
 
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
-    private CacheManager cacheManager;
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private net.sf.ehcache.CacheManager cacheManager;
 
     @PreDestroy
     public void destroy() {
+        log.info("Remove Cache Manager metrics");
+        metricRegistry.getNames().stream()
+            .filter(name -> name.startsWith(net.sf.ehcache.Cache.class.getName()))
+            .forEach(metricRegistry::remove);
         log.info("Closing Cache Manager");
+        cacheManager.shutdown();
     }
 
     @Bean
     public CacheManager cacheManager() {
-        log.debug("No cache");
-        cacheManager = new NoOpCacheManager();
-        return cacheManager;
+        log.debug("Starting Ehcache");
+        //the caches and their size/ttl are declared in ehcache.xml
+        cacheManager = net.sf.ehcache.CacheManager.create();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Ehcache cache = cacheManager.getEhcache(cacheName);
+            cacheManager.replaceCacheWithDecoratedCache(cache, InstrumentedEhcache.instrument(metricRegistry, cache));
+        }
+        EhCacheCacheManager ehCacheManager = new EhCacheCacheManager();
+        ehCacheManager.setCacheManager(cacheManager);
+        return ehCacheManager;
+    }
+
+    /**
+     * hibernate gets its regions from the same singleton ehcache manager : the entityManagerFactory is created
+     * after the caches are decorated, otherwise the hibernate regions are not instrumented
+     */
+    @Configuration
+    protected static class EntityManagerFactoryDependsOnCacheManager extends EntityManagerFactoryDependsOnPostProcessor {
+
+        public EntityManagerFactoryDependsOnCacheManager() {
+            super("cacheManager");
+        }
     }
 }
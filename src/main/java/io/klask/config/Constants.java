@@ -40,9 +40,29 @@ public final class Constants {
     public static final int PAGE_SIZE = 10;
     // Max size of a readable file to index 20Mo
     public static final long MAX_SIZE_FOR_INDEXING_ONE_FILE = 20 * 1024 * 1024;
+    // Max number of candidate files verified by a regex search
+    public static final int MAX_REGEX_CANDIDATES = 10000;
+    // Max time spent by a regex search to verify its candidates, java.util.regex has no timeout
+    public static final long MAX_REGEX_VERIFY_MILLIS = 5000;
+    // Max matching lines returned in the summary of a regex search
+    public static final int REGEX_SUMMARY_LINES = 3;
+    // Max cost of the wildcards of a query, past it the query is rejected (see QueryAnalysis)
+    public static final int MAX_QUERY_COST = 10;
+    // Max states of the automaton of a wildcard or a regexp in a query, 10000 by default in elasticsearch
+    public static final int MAX_DETERMINIZED_STATES = 2000;
     // Map of fields which give the raw field to sort (https://www.elastic.co/guide/en/elasticsearch/guide/current/multi-fields.html)
     public static final Map<String, String> ORDER_FIELD_MAPPING = new HashMap<>();
     public static final String ALIAS = "klask_files";
+    // Cache of the search results, configured in ehcache.xml
+    public static final String SEARCH_CACHE = "search";
+    // Cache of the unfiltered facet counts, precomputed at the end of each crawl
+    public static final String FACETS_CACHE = "facets";
+    // Cache of the facet counts filtered by a query, short lived
+    public static final String FILTERED_FACETS_CACHE = "filteredFacets";
+    // Cache of the typeahead suggestions
+    public static final String SUGGEST_CACHE = "suggest";
+    // Cache of the verified JWT, by hash of the token
+    public static final String TOKEN_CACHE = "token";
 
     static {
         ORDER_FIELD_MAPPING.put("id", "id");
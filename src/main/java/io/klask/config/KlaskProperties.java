@@ -24,6 +24,18 @@ public class KlaskProperties {
         return crawler;
     }
 
+    private final SearchProperties search = new SearchProperties();
+
+    public SearchProperties getSearch() {
+        return search;
+    }
+
+    private final AspectProperties aspect = new AspectProperties();
+
+    public AspectProperties getAspect() {
+        return aspect;
+    }
+
 
     public static class CrawlerProperties {
 
@@ -128,4 +140,186 @@ public class KlaskProperties {
         }
     }
 
+    public static class SearchProperties {
+
+        private final HighlightProperties highlight = new HighlightProperties();
+
+        private final LinesProperties lines = new LinesProperties();
+
+        private final SlowQueryProperties slowQuery = new SlowQueryProperties();
+
+        //documents collected by shard when the client doesn't need the exact count of the results
+        private int terminateAfter = 10000;
+
+        public HighlightProperties getHighlight() {
+            return highlight;
+        }
+
+        public LinesProperties getLines() {
+            return lines;
+        }
+
+        public SlowQueryProperties getSlowQuery() {
+            return slowQuery;
+        }
+
+        public int getTerminateAfter() {
+            return terminateAfter;
+        }
+
+        public void setTerminateAfter(int terminateAfter) {
+            this.terminateAfter = terminateAfter;
+        }
+    }
+
+    public static class SlowQueryProperties {
+
+        //the searches longer than this threshold in ms are written in the slow query log, -1 to disable
+        private long threshold = 1000;
+
+        public long getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(long threshold) {
+            this.threshold = threshold;
+        }
+    }
+
+    public static class LinesProperties {
+
+        private boolean enabled = true;
+
+        //lines before and after each matching line
+        private int context = 2;
+
+        //the content of bigger files is not read to find the line numbers
+        private long maxFileSize = 1024 * 1024;
+
+        //the content read for a page, the next files of the page are returned without lines
+        private long maxPageBytes = 1024 * 1024;
+
+        private int maxMatchingLines = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getContext() {
+            return context;
+        }
+
+        public void setContext(int context) {
+            this.context = context;
+        }
+
+        public long getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        public long getMaxPageBytes() {
+            return maxPageBytes;
+        }
+
+        public void setMaxPageBytes(long maxPageBytes) {
+            this.maxPageBytes = maxPageBytes;
+        }
+
+        public int getMaxMatchingLines() {
+            return maxMatchingLines;
+        }
+
+        public void setMaxMatchingLines(int maxMatchingLines) {
+            this.maxMatchingLines = maxMatchingLines;
+        }
+    }
+
+    public static class AspectProperties {
+
+        //debug : log the arguments and the result of each call, as in development
+        //sampling : record the latency of a fraction of the calls in the metrics, nothing is logged
+        //off : no aspect at all, the services are not proxied. Only debug and sampling can be switched at runtime
+        private String mode = "off";
+
+        //fraction of the calls timed in the sampling mode, between 0 and 1
+        private double sampleRate = 0.01;
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    public static class HighlightProperties {
+
+        //postings : offsets stored in the postings, no term vectors and no re-analysis of the content
+        //plain : re-analyze the content of each hit, works on any mapping but slow on big files
+        //none : no fragment at all, the fastest
+        private String type = "postings";
+
+        //max length of one fragment returned to the frontend
+        private int fragmentSize = 150;
+
+        private int numberOfFragments = 3;
+
+        //the phrase, "def:" wildcard and leading wildcard searches are highlighted by the plain highlighter, which
+        //analyzes the whole content of each hit again : the bigger files are returned without fragments
+        private long maxPlainSize = 256 * 1024;
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public int getFragmentSize() {
+            return fragmentSize;
+        }
+
+        public void setFragmentSize(int fragmentSize) {
+            this.fragmentSize = fragmentSize;
+        }
+
+        public int getNumberOfFragments() {
+            return numberOfFragments;
+        }
+
+        public void setNumberOfFragments(int numberOfFragments) {
+            this.numberOfFragments = numberOfFragments;
+        }
+
+        public long getMaxPlainSize() {
+            return maxPlainSize;
+        }
+
+        public void setMaxPlainSize(long maxPlainSize) {
+            this.maxPlainSize = maxPlainSize;
+        }
+
+        public boolean isEnabled() {
+            return !"none".equals(type);
+        }
+    }
+
 }
@@ -1,18 +1,26 @@
 package io.klask.config;
 
 import io.klask.aop.logging.LoggingAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
-import org.springframework.context.annotation.Profile;
+
+import javax.inject.Inject;
+import java.util.Locale;
 
 @Configuration
 @EnableAspectJAutoProxy
 public class LoggingAspectConfiguration {
 
+    @Inject
+    private KlaskProperties klaskProperties;
+
     @Bean
-    @Profile(Constants.SPRING_PROFILE_DEVELOPMENT)
+    @ConditionalOnExpression("!'${klask.aspect.mode:off}'.equalsIgnoreCase('off')")
     public LoggingAspect loggingAspect() {
-        return new LoggingAspect();
+        return new LoggingAspect(
+            LoggingAspect.Mode.valueOf(klaskProperties.getAspect().getMode().toUpperCase(Locale.ENGLISH)),
+            klaskProperties.getAspect().getSampleRate());
     }
 }
@@ -80,6 +80,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .antMatchers("/api/activate").permitAll()
             .antMatchers("/api/authenticate").permitAll()
             .antMatchers("/api/crawler").permitAll()
+            .antMatchers("/api/crawler/progress/**").permitAll()
             .antMatchers("/api/versions/**").permitAll()
             .antMatchers("/api/extensions/**").permitAll()
             .antMatchers("/api/projects/**").permitAll()
@@ -1,16 +1,34 @@
 package io.klask.crawler;
 
+import io.klask.service.FacetService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import javax.inject.Inject;
+
 /**
  * Created by harelj on 16/02/2017.
  */
 @Component
 public class AsyncCrawler {
 
+    private final Logger log = LoggerFactory.getLogger(AsyncCrawler.class);
+
+    @Inject
+    private FacetService facetService;
+
     @Async("taskExecutor")
     public void executeCrawler(ICrawler crawler){
         crawler.start();
+        //the crawl has changed the index generation, precompute the facets for the next page loads
+        try {
+            for (String field : FacetService.PRECOMPUTED_FIELDS) {
+                facetService.refreshFacets(field);
+            }
+        } catch (Exception e) {
+            log.warn("unable to precompute the facets after the crawl", e);
+        }
     }
 }
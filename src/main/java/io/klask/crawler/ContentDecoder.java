@@ -0,0 +1,99 @@
+package io.klask.crawler;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The only decoding of the raw bytes of a file, done by the crawlers before the indexing.
+ * The content is stored as decoded text and the detected charset in the {@code charset} field,
+ * so the read paths return the stored text as is.
+ * <p>
+ * A byte order mark gives the charset, otherwise the content is UTF-8 if it is a valid UTF-8 sequence
+ * (ASCII included), and ISO-8859-1 if not, which was the historical charset of the crawlers.
+ * </p>
+ */
+public final class ContentDecoder {
+
+    public static final Charset DEFAULT_CHARSET = StandardCharsets.ISO_8859_1;
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+    private ContentDecoder() {
+    }
+
+    /**
+     * decode the raw content in one pass : with the charset of its byte order mark, else as UTF-8, and only if
+     * it is not a valid UTF-8 sequence as ISO-8859-1
+     *
+     * @param content
+     * @return the decoded content with its charset
+     */
+    public static Decoded decode(byte[] content) {
+        if (startsWith(content, UTF8_BOM)) {
+            return withoutBom(content, UTF8_BOM, StandardCharsets.UTF_8);
+        }
+        if (startsWith(content, UTF16BE_BOM)) {
+            return withoutBom(content, UTF16BE_BOM, StandardCharsets.UTF_16BE);
+        }
+        if (startsWith(content, UTF16LE_BOM)) {
+            return withoutBom(content, UTF16LE_BOM, StandardCharsets.UTF_16LE);
+        }
+        try {
+            CharBuffer text = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(content));
+            return new Decoded(text.toString(), StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            return new Decoded(new String(content, DEFAULT_CHARSET), DEFAULT_CHARSET);
+        }
+    }
+
+    /**
+     * decode the raw content with the charset of its byte order mark, without the mark
+     */
+    private static Decoded withoutBom(byte[] content, byte[] bom, Charset charset) {
+        return new Decoded(new String(content, bom.length, content.length - bom.length, charset), charset);
+    }
+
+    private static boolean startsWith(byte[] content, byte[] prefix) {
+        if (content.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (content[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * a content decoded by ContentDecoder, and the charset used
+     */
+    public static final class Decoded {
+
+        private final String text;
+
+        private final Charset charset;
+
+        private Decoded(String text, Charset charset) {
+            this.text = text;
+            this.charset = charset;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Charset getCharset() {
+            return charset;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.klask.crawler;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.klask.domain.Repository;
+
+/**
+ * Metrics of the crawler hot paths, registered in the application {@link MetricRegistry}
+ * so they are reported by the JMX, Graphite or Spark reporters.
+ * <p>
+ * Names are tagged by repository type and name : {@code klask.crawler.<type>.<repository>.<metric>}
+ * </p>
+ */
+public class CrawlerMetrics {
+
+    private static final String PREFIX = "klask.crawler";
+
+    private final Timer read;
+
+    private final Timer decode;
+
+    private final Timer sha256;
+
+    private final Timer contentHash;
+
+    private final Timer document;
+
+    private final Timer symbols;
+
+    private final Timer bulk;
+
+    private final Histogram bulkDocs;
+
+    private final Histogram bulkBytes;
+
+    private final Meter rejected;
+
+    private final Meter bulkErrors;
+
+    public CrawlerMetrics(MetricRegistry metricRegistry, Repository repository) {
+        String type = repository.getType() == null ? "unknown" : repository.getType().name().toLowerCase();
+        //graphite uses dots as separators, the repository name should not create sub levels
+        String name = repository.getName() == null ? "unknown" : repository.getName().replaceAll("[^A-Za-z0-9_-]", "_");
+
+        this.read = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "read"));
+        this.decode = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "decode"));
+        this.sha256 = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "sha256"));
+        this.contentHash = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "contentHash"));
+        this.document = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "document"));
+        this.symbols = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "symbols"));
+        this.bulk = metricRegistry.timer(MetricRegistry.name(PREFIX, type, name, "bulk", "latency"));
+        this.bulkDocs = metricRegistry.histogram(MetricRegistry.name(PREFIX, type, name, "bulk", "docs"));
+        this.bulkBytes = metricRegistry.histogram(MetricRegistry.name(PREFIX, type, name, "bulk", "bytes"));
+        this.rejected = metricRegistry.meter(MetricRegistry.name(PREFIX, type, name, "bulk", "rejected"));
+        this.bulkErrors = metricRegistry.meter(MetricRegistry.name(PREFIX, type, name, "bulk", "errors"));
+    }
+
+    /**
+     * time to read the raw bytes of a file (filesystem, git object or svn content)
+     */
+    public Timer read() {
+        return read;
+    }
+
+    /**
+     * time to decode the raw bytes in a String
+     */
+    public Timer decode() {
+        return decode;
+    }
+
+    /**
+     * time to compute the SHA-256 id of a file, on its path
+     */
+    public Timer sha256() {
+        return sha256;
+    }
+
+    /**
+     * time to compute the SHA-256 hash of the content of a file
+     */
+    public Timer contentHash() {
+        return contentHash;
+    }
+
+    /**
+     * time to construct a complete {@code File} document
+     */
+    public Timer document() {
+        return document;
+    }
+
+    /**
+     * time to extract the symbols declared in a file
+     */
+    public Timer symbols() {
+        return symbols;
+    }
+
+    /**
+     * latency of one bulk request to elasticsearch
+     */
+    public Timer bulk() {
+        return bulk;
+    }
+
+    /**
+     * number of documents sent in one bulk request
+     */
+    public Histogram bulkDocs() {
+        return bulkDocs;
+    }
+
+    /**
+     * number of raw content bytes, before decoding, of the files sent in one bulk request
+     */
+    public Histogram bulkBytes() {
+        return bulkBytes;
+    }
+
+    /**
+     * documents rejected by elasticsearch in a bulk response
+     */
+    public Meter rejected() {
+        return rejected;
+    }
+
+    /**
+     * bulk requests lost because elasticsearch was not available
+     */
+    public Meter bulkErrors() {
+        return bulkErrors;
+    }
+}
@@ -0,0 +1,187 @@
+package io.klask.crawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+
+/**
+ * Live progress of one crawler on one repository.
+ * Counters are updated by the crawler thread and read concurrently by the REST layer.
+ */
+public class CrawlerProgress {
+
+    public enum Phase {
+        PENDING,
+        CHECKOUT,
+        COUNTING,
+        INDEXING,
+        FINISHED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final Long repositoryId;
+
+    private final String repositoryName;
+
+    private final RepositoryType repositoryType;
+
+    private volatile Phase phase = Phase.PENDING;
+
+    //number of files found by the crawler and sent to the bulk (not excluded)
+    private final AtomicLong filesSeen = new AtomicLong();
+
+    //number of files acknowledged by elasticsearch
+    private final AtomicLong filesIndexed = new AtomicLong();
+
+    //number of files rejected by elasticsearch or lost in a failed bulk
+    private final AtomicLong failures = new AtomicLong();
+
+    //number of content bytes read from the repository
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    //number of files expected, -1 if the crawler can't count them before indexing
+    private final AtomicLong totalFiles = new AtomicLong(-1L);
+
+    private volatile long startTime = 0L;
+
+    private volatile long endTime = 0L;
+
+    public CrawlerProgress(Repository repository) {
+        this.repositoryId = repository.getId();
+        this.repositoryName = repository.getName();
+        this.repositoryType = repository.getType();
+    }
+
+    /**
+     * reset all the counters and begin a new crawl
+     */
+    public void start() {
+        filesSeen.set(0L);
+        filesIndexed.set(0L);
+        failures.set(0L);
+        bytesRead.set(0L);
+        totalFiles.set(-1L);
+        endTime = 0L;
+        startTime = System.currentTimeMillis();
+        phase = Phase.COUNTING;
+    }
+
+    /**
+     * end the crawl with a terminal phase (FINISHED, CANCELLED or FAILED)
+     *
+     * @param terminalPhase
+     */
+    public void finish(Phase terminalPhase) {
+        endTime = System.currentTimeMillis();
+        phase = terminalPhase;
+    }
+
+    public void addFileSeen(long bytes) {
+        filesSeen.incrementAndGet();
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void addFilesIndexed(long count) {
+        filesIndexed.addAndGet(count);
+    }
+
+    public void addFailures(long count) {
+        failures.addAndGet(count);
+    }
+
+    /**
+     * add files to the expected total, used by crawlers which count by branch or by project
+     *
+     * @param count
+     */
+    public void addTotalFiles(long count) {
+        totalFiles.updateAndGet(total -> total < 0 ? count : total + count);
+    }
+
+    public boolean isRunning() {
+        return phase == Phase.CHECKOUT || phase == Phase.COUNTING || phase == Phase.INDEXING;
+    }
+
+    public long getElapsedMillis() {
+        if (startTime == 0L) {
+            return 0L;
+        }
+        return (endTime == 0L ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    public double getDocsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0L ? 0d : filesIndexed.get() * 1000d / elapsed;
+    }
+
+    public double getMegaBytesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0L ? 0d : bytesRead.get() * 1000d / elapsed / (1024 * 1024);
+    }
+
+    /**
+     * estimated remaining time in seconds, based on the rate of files seen so far
+     *
+     * @return -1 if the estimation is not possible (total unknown or crawler not running)
+     */
+    public long getEtaSeconds() {
+        long total = totalFiles.get();
+        long seen = filesSeen.get();
+        long elapsed = getElapsedMillis();
+        if (!isRunning() || total < 0 || seen == 0L || elapsed == 0L) {
+            return -1L;
+        }
+        long remaining = Math.max(0L, total - seen);
+        return remaining * elapsed / seen / 1000;
+    }
+
+    public Long getRepositoryId() {
+        return repositoryId;
+    }
+
+    public String getRepositoryName() {
+        return repositoryName;
+    }
+
+    public RepositoryType getRepositoryType() {
+        return repositoryType;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    public long getFilesSeen() {
+        return filesSeen.get();
+    }
+
+    public long getFilesIndexed() {
+        return filesIndexed.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getTotalFiles() {
+        return totalFiles.get();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+}
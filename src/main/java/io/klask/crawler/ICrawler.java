@@ -28,5 +28,17 @@ public interface ICrawler {
 
     long getTotalFiles();
 
+    /**
+     * return the live progress of the job (phase, counters and throughput)
+     * @return
+     */
+    CrawlerProgress getProgress();
+
+    /**
+     * return the number of modifications sent to the index by the job since its creation.
+     * This counter only grows, it is used to invalidate the search caches
+     * @return
+     */
+    long getIndexCommits();
 
 }
@@ -0,0 +1,109 @@
+package io.klask.crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lightweight extraction of the declarations (classes, functions, methods, types...) of a source file,
+ * done by the crawlers before the indexing to fill the {@code symbols} field.
+ * <p>
+ * Each language is a list of regex, the first group of a regex is the name of the declared symbol.
+ * This is not a parser : the goal is to find most of the definitions quickly, not to be exact.
+ * </p>
+ */
+public final class SymbolExtractor {
+
+    // a minified or generated file can declare a lot of symbols, the field should stay small
+    public static final int MAX_SYMBOLS_BY_FILE = 1000;
+
+    private static final Map<String, List<Pattern>> PATTERNS_BY_EXTENSION = new HashMap<>();
+
+    private static final List<Pattern> JAVA = patterns(
+        "\\b(?:class|interface|enum|@interface)\\s+([A-Za-z_$][\\w$]*)",
+        "^[ \\t]*(?:(?:public|protected|private|static|final|abstract|synchronized|native|default)\\s+)*" +
+            "(?!return\\b|new\\b|else\\b|throw\\b)[\\w$.\\[\\]]+(?:<[^>\\n]*>)?(?:\\[\\])*[ \\t]+([A-Za-z_$][\\w$]*)[ \\t]*\\([^;\\n]*$"
+    );
+
+    private static final List<Pattern> JAVASCRIPT = patterns(
+        "\\bfunction\\b[ \\t]*\\*?[ \\t]*([A-Za-z_$][\\w$]*)",
+        "\\bclass[ \\t]+([A-Za-z_$][\\w$]*)",
+        "\\b(?:interface|type|enum)[ \\t]+([A-Za-z_$][\\w$]*)[ \\t]*[={<]",
+        "\\b(?:const|let|var)[ \\t]+([A-Za-z_$][\\w$]*)[ \\t]*=[ \\t]*(?:async[ \\t]*)?(?:function\\b|\\([^)\\n]*\\)[ \\t]*=>|[A-Za-z_$][\\w$]*[ \\t]*=>)",
+        "^[ \\t]+(?:(?:public|private|protected|static|async|readonly|get|set)[ \\t]+)*" +
+            "(?!if\\b|for\\b|while\\b|switch\\b|catch\\b|function\\b|return\\b)([A-Za-z_$][\\w$]*)[ \\t]*\\([^)\\n]*\\)[ \\t]*(?::[^{\\n]+)?\\{"
+    );
+
+    private static final List<Pattern> PYTHON = patterns(
+        "^[ \\t]*(?:async[ \\t]+)?def[ \\t]+([A-Za-z_]\\w*)",
+        "^[ \\t]*class[ \\t]+([A-Za-z_]\\w*)"
+    );
+
+    private static final List<Pattern> GO = patterns(
+        "^func[ \\t]+(?:\\([^)\\n]*\\)[ \\t]*)?([A-Za-z_]\\w*)",
+        "^(?:type[ \\t]+|[ \\t]+)([A-Za-z_]\\w*)[ \\t]+(?:struct|interface)\\b"
+    );
+
+    private static final List<Pattern> C = patterns(
+        "^(?!return\\b|else\\b|typedef\\b)(?:[\\w:<>,]+[ \\t*&]+)+\\**([A-Za-z_~][\\w:~]*)[ \\t]*\\([^;\\n]*$",
+        "^[ \\t]*(?:typedef[ \\t]+)?(?:struct|union|enum|class)[ \\t]+([A-Za-z_]\\w*)[ \\t]*(?:\\{|:|$)",
+        "^[ \\t]*#[ \\t]*define[ \\t]+([A-Za-z_]\\w*)"
+    );
+
+    static {
+        register(JAVA, "java");
+        register(JAVASCRIPT, "js", "jsx", "mjs", "ts", "tsx");
+        register(PYTHON, "py");
+        register(GO, "go");
+        register(C, "c", "h", "cc", "cpp", "cxx", "hh", "hpp");
+    }
+
+    private SymbolExtractor() {
+    }
+
+    /**
+     * @param extension the extension of the file, in lower case
+     * @return true if the symbols of this kind of file can be extracted
+     */
+    public static boolean isSupported(String extension) {
+        return extension != null && PATTERNS_BY_EXTENSION.containsKey(extension);
+    }
+
+    /**
+     * extract the names of the symbols declared in the content
+     *
+     * @param extension the extension of the file, in lower case
+     * @param content
+     * @return the distinct names in order of appearance by pattern, empty if the language is not supported
+     */
+    public static List<String> extract(String extension, String content) {
+        if (content == null || !isSupported(extension)) {
+            return Collections.emptyList();
+        }
+        Set<String> symbols = new LinkedHashSet<>();
+        for (Pattern pattern : PATTERNS_BY_EXTENSION.get(extension)) {
+            Matcher matcher = pattern.matcher(content);
+            while (matcher.find() && symbols.size() < MAX_SYMBOLS_BY_FILE) {
+                symbols.add(matcher.group(1));
+            }
+        }
+        return new ArrayList<>(symbols);
+    }
+
+    private static List<Pattern> patterns(String... regex) {
+        List<Pattern> patterns = new ArrayList<>(regex.length);
+        Arrays.stream(regex).forEach(r -> patterns.add(Pattern.compile(r, Pattern.MULTILINE)));
+        return patterns;
+    }
+
+    private static void register(List<Pattern> patterns, String... extensions) {
+        Arrays.stream(extensions).forEach(extension -> PATTERNS_BY_EXTENSION.put(extension, patterns));
+    }
+}
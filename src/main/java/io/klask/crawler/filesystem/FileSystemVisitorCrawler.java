@@ -20,9 +20,7 @@ public class FileSystemVisitorCrawler extends SimpleFileVisitor<Path> {
 
     private FileSystemCrawler crawler;
 
-    private boolean abortAsked=false;
-
-    private long indexedFiles=0;
+    private volatile boolean abortAsked=false;
 
     public FileSystemVisitorCrawler(FileSystemCrawler crawler){
         this.crawler = crawler;
@@ -46,7 +44,6 @@ public class FileSystemVisitorCrawler extends SimpleFileVisitor<Path> {
     public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
         log.trace("visitFile {}",path);
         if(attrs.isRegularFile() && !this.crawler.isFileInExclusion(path)) {
-            this.indexedFiles++;
             this.crawler.addFile(path);
         }
         else{
@@ -73,7 +70,7 @@ public class FileSystemVisitorCrawler extends SimpleFileVisitor<Path> {
         this.abortAsked = true;
     }
 
-    public long getIndexedFiles() {
-        return indexedFiles;
+    public boolean isAbortAsked() {
+        return abortAsked;
     }
 }
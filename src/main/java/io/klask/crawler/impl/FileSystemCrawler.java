@@ -1,16 +1,17 @@
 package io.klask.crawler.impl;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.Timed;
 import io.klask.config.Constants;
 import io.klask.config.KlaskProperties;
+import io.klask.crawler.CrawlerProgress;
 import io.klask.crawler.CrawlerResult;
 import io.klask.crawler.ICrawler;
 import io.klask.crawler.filesystem.FileSystemVisitorCrawler;
 import io.klask.domain.File;
 import io.klask.domain.Repository;
 import io.klask.repository.search.FileSearchRepository;
-import org.bouncycastle.jcajce.provider.digest.SHA256;
-import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
@@ -32,17 +33,14 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
     private final Logger log = LoggerFactory.getLogger(FileSystemCrawler.class);
     private Path rootPath;
 
-    private boolean crawling = false;
-    private long totalFiles = 0L;
-
 
     private Future<CrawlerResult> result;
 
     //FileVisitor implementation where it is possible to stop if received the command
     private FileSystemVisitorCrawler visitor = new FileSystemVisitorCrawler(this);
 
-    public FileSystemCrawler(Repository repository, KlaskProperties klaskProperties, FileSearchRepository fileSearchRepository, ElasticsearchTemplate elasticsearchTemplate){
-        super(repository, klaskProperties, elasticsearchTemplate);
+    public FileSystemCrawler(Repository repository, KlaskProperties klaskProperties, FileSearchRepository fileSearchRepository, ElasticsearchTemplate elasticsearchTemplate, MetricRegistry metricRegistry){
+        super(repository, klaskProperties, elasticsearchTemplate, metricRegistry);
 
         this.rootPath = new java.io.File(repository.getPath()).toPath();
         this.result = null;
@@ -68,12 +66,13 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
     @Override
     @Timed
     public CrawlerResult start() {
-        this.crawling=true;
+        progress.start();
         log.debug("Start Parsing files in {}", this.repository.getPath());
 
-        initializeProperties();
+        CrawlerProgress.Phase terminalPhase = CrawlerProgress.Phase.FINISHED;
 
         try(Stream<Path> walk = Files.walk(this.rootPath)) {
+            initializeProperties();
             //this walk is just for counting docs
             long docsCount = walk
                 .filter(dir -> !this.excludeDirectories(this.rootPath, dir))
@@ -82,6 +81,8 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
                 .count();
 
             log.debug("{} files to index", docsCount);
+            progress.addTotalFiles(docsCount);
+            progress.setPhase(CrawlerProgress.Phase.INDEXING);
 
             //this time, walk is indexing each files which match patterns in visitor
             Files.walkFileTree(this.rootPath,
@@ -90,13 +91,18 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
             //if there are some files not indexed, run once last time permit indexing last files
             log.debug("last indexing");
             indexingBulkFiles();
+            if (visitor.isAbortAsked()) {
+                terminalPhase = CrawlerProgress.Phase.CANCELLED;
+            }
 
         } catch (final IOException e) {
             log.error("Exception in crawler method", e);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
         } catch (Throwable t) {
             log.error("Throwable thrown " + t.getMessage(), t);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
         }finally {
-            this.crawling=false;
+            finishCrawl(terminalPhase);
         }
 
 
@@ -125,7 +131,7 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
         try {
             indexBulkFilesIfNecessary();
             File document = constructFile(fileName, extension, p);
-            listeDeFichiers.add(document);
+            addFileToBulk(document);
 
         } catch (IOException e) {
             log.error("Exception while reading file {}", p);
@@ -136,7 +142,7 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
     }
 
     /**
-     * Construct a {@link File} with a version and readContent
+     * Construct a {@link File} with a version and its decoded content
      *
      * @param name
      * @param extension
@@ -146,34 +152,36 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
      */
     protected File constructFile(String name, String extension, Path path) throws IOException {
 
-        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-        long size = attrs.size();
+        try (Timer.Context ignored = metrics.document().time()) {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attrs.size();
 
-        String content = null;
-        if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
-            || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
-            log.trace("parsing only name on file : {}", path);
-        } else {
-            content = readContent(path);
-        }
+            byte[] content = null;
+            if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
+                || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
+                log.trace("parsing only name on file : {}", path);
+            } else {
+                content = readBytes(path);
+            }
 
-        //sha3 on the file's path. It should be the same, even after a full reindex
-        SHA256.Digest md = new SHA256.Digest();
-        md.update(path.toString().getBytes("UTF-8"));
-
-        File fichier = new File(
-            Hex.toHexString(md.digest()),
-            name,
-            extension,
-            path.toString(),
-            null,
-            content,
-            null,
-            size
-        );
-        setVersionAndProject(fichier, path.toString());
-
-        return fichier;
+            //sha3 on the file's path. It should be the same, even after a full reindex
+            File fichier = new File(
+                convertSHA256(path.toString()),
+                name,
+                extension,
+                path.toString(),
+                null,
+                null,
+                null,
+                size
+            );
+            if (content != null) {
+                setContent(fichier, content);
+            }
+            setVersionAndProject(fichier, path.toString());
+
+            return fichier;
+        }
     }
 
     private void setVersionAndProject(File fichier, String path) {
@@ -200,19 +208,4 @@ public class FileSystemCrawler extends GenericCrawler implements ICrawler {
         log.debug("indexing aborted by user ");
         visitor.abort();
     }
-
-    @Override
-    public boolean isCrawling() {
-        return crawling;
-    }
-
-    @Override
-    public long getIndexedFiles(){
-        return visitor.getIndexedFiles();
-    }
-
-    @Override
-    public long getTotalFiles() {
-        return this.totalFiles;
-    }
 }
@@ -1,7 +1,13 @@
 package io.klask.crawler.impl;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import io.klask.config.Constants;
 import io.klask.config.KlaskProperties;
+import io.klask.crawler.ContentDecoder;
+import io.klask.crawler.CrawlerMetrics;
+import io.klask.crawler.CrawlerProgress;
+import io.klask.crawler.SymbolExtractor;
 import io.klask.domain.File;
 import io.klask.domain.Repository;
 import org.bouncycastle.jcajce.provider.digest.SHA256;
@@ -13,19 +19,25 @@ import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
 import org.springframework.data.elasticsearch.core.query.IndexQuery;
 import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public abstract class GenericCrawler {
 
+    //symbols of a file added to the completion suggester, the others are only found with def:
+    private static final int MAX_SUGGEST_SYMBOLS = 50;
+
     private final Logger log = LoggerFactory.getLogger(GenericCrawler.class);
 
     protected KlaskProperties klaskProperties;
@@ -40,12 +52,18 @@ public abstract class GenericCrawler {
     protected Set<File> listeDeFichiers = new HashSet<>();
     protected  Repository repository;
     protected int numberOfFailedDocuments = 0;
+    protected final CrawlerProgress progress;
+    protected final CrawlerMetrics metrics;
+    //number of modifications sent to the alias since the creation of the crawler, never reset
+    private final AtomicLong indexCommits = new AtomicLong();
 
 
-    public GenericCrawler(Repository repository, KlaskProperties klaskProperties, ElasticsearchTemplate elasticsearchTemplate){
+    public GenericCrawler(Repository repository, KlaskProperties klaskProperties, ElasticsearchTemplate elasticsearchTemplate, MetricRegistry metricRegistry){
         this.repository = repository;
         this.klaskProperties = klaskProperties;
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.progress = new CrawlerProgress(repository);
+        this.metrics = new CrawlerMetrics(metricRegistry, repository);
 
     }
 
@@ -90,6 +108,59 @@ public abstract class GenericCrawler {
 
 
 
+    /**
+     * add a file in the current bulk and count it in the progress
+     * the symbols declared in the content are extracted here, so all the crawlers fill the symbols field
+     * @param file
+     */
+    protected void addFileToBulk(File file) {
+        if (file.getContent() != null && SymbolExtractor.isSupported(file.getExtension())) {
+            try (Timer.Context ignored = metrics.symbols().time()) {
+                file.setSymbols(SymbolExtractor.extract(file.getExtension(), file.getContent()));
+            }
+        }
+        file.setSuggest(constructSuggest(file));
+        file.setContentHash(contentHash(file));
+        listeDeFichiers.add(file);
+        progress.addFileSeen(contentBytes(file));
+    }
+
+    /**
+     * @return the number of raw bytes read for the content of the file, 0 if only its name is indexed
+     */
+    private static long contentBytes(File file) {
+        return file.getContent() == null || file.getSize() == null ? 0L : file.getSize();
+    }
+
+    /**
+     * the inputs of the completion suggester for the file : its name, the segments of its path,
+     * its project and the first symbols it declares
+     * @param file
+     * @return
+     */
+    protected List<String> constructSuggest(File file) {
+        Set<String> inputs = new LinkedHashSet<>();
+        if (file.getName() != null) {
+            inputs.add(file.getName());
+        }
+        if (file.getPath() != null) {
+            Arrays.stream(file.getPath().split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .forEach(inputs::add);
+        }
+        if (file.getProject() != null) {
+            inputs.add(file.getProject());
+        }
+        if (file.getSymbols() != null) {
+            file.getSymbols().stream().limit(MAX_SUGGEST_SYMBOLS).forEach(inputs::add);
+        }
+        //the control characters are reserved by the completion field
+        return inputs.stream()
+            .map(input -> input.replaceAll("\\p{Cntrl}", ""))
+            .filter(input -> !input.isEmpty())
+            .collect(Collectors.toList());
+    }
+
     /**
      * check the size of batch index, and index if necessary
      */
@@ -196,35 +267,56 @@ public abstract class GenericCrawler {
      * @throws UnsupportedEncodingException
      */
     protected String convertSHA256(String path) throws UnsupportedEncodingException {
-        SHA256.Digest md = new SHA256.Digest();
-        md.update(path.toString().getBytes("UTF-8"));
-        return Hex.toHexString(md.digest());
+        try (Timer.Context ignored = metrics.sha256().time()) {
+            SHA256.Digest md = new SHA256.Digest();
+            md.update(path.toString().getBytes("UTF-8"));
+            return Hex.toHexString(md.digest());
+        }
     }
 
     /**
-     * Read the content of the file in the outputStream
+     * sha256 of the content, the same file in several branches or versions has the same hash.
+     * A file without content (binary, or not readable) is identified by its path
      *
+     * @param file
      * @return
-     * @throws IOException
      */
-    protected String readContent(ByteArrayOutputStream outputStream)  {
-        return new String(outputStream.toByteArray(), Charset.forName("iso-8859-1"));
+    protected String contentHash(File file) {
+        try (Timer.Context ignored = metrics.contentHash().time()) {
+            SHA256.Digest md = new SHA256.Digest();
+            String identity = file.getContent() != null ? file.getContent() : "path:" + file.getPath();
+            md.update(identity.getBytes(StandardCharsets.UTF_8));
+            return Hex.toHexString(md.digest());
+        }
     }
 
     /**
-     * Read the content of the file at the root path p
+     * Read the raw content of the file at the root path p
      *
      * @param p
      * @return
      * @throws IOException
      */
-    protected String readContent(Path p) throws IOException {
-        byte[] content = Files.readAllBytes(p);
-        return new String(content, Charset.forName("iso-8859-1"));
-
+    protected byte[] readBytes(Path p) throws IOException {
+        try (Timer.Context ignored = metrics.read().time()) {
+            return Files.readAllBytes(p);
+        }
     }
 
-
+    /**
+     * decode the raw content of a file in its detected charset, and set the content and the charset of the file.
+     * This is the only decoding of the content, it is stored and returned as is
+     *
+     * @param file
+     * @param content
+     */
+    public void setContent(File file, byte[] content) {
+        try (Timer.Context ignored = metrics.decode().time()) {
+            ContentDecoder.Decoded decoded = ContentDecoder.decode(content);
+            file.setCharset(decoded.getCharset().name());
+            file.setContent(decoded.getText());
+        }
+    }
 
     /**
      * Index a bulk of files (Constant default : 100)
@@ -240,6 +332,7 @@ public abstract class GenericCrawler {
             }
             String indexName = (Constants.INDEX_PREFIX + repository.getName() + "-" + repository.getId()).toLowerCase();
             List<IndexQuery> queriesList = new ArrayList<>(listeDeFichiers.size());
+            long bulkBytes = 0L;
             for (File file : listeDeFichiers) {
                 IndexQuery query = new IndexQueryBuilder()
                     .withIndexName(indexName)
@@ -247,13 +340,25 @@ public abstract class GenericCrawler {
                     //.withType(repository.getType().name())
                     .build();
                 queriesList.add(query);
+                bulkBytes += contentBytes(file);
             }
-            elasticsearchTemplate.bulkIndex(queriesList);
+            metrics.bulkDocs().update(queriesList.size());
+            metrics.bulkBytes().update(bulkBytes);
+            try (Timer.Context ignored = metrics.bulk().time()) {
+                elasticsearchTemplate.bulkIndex(queriesList);
+            } finally {
+                //even a partial bulk modifies the alias
+                indexChanged();
+            }
+            progress.addFilesIndexed(queriesList.size());
 
         } catch (ElasticsearchException e) {
             log.error("Exception while indexing file -- getting file's list...");
             Set<String> failedDocuments = e.getFailedDocuments().keySet();
             numberOfFailedDocuments += failedDocuments.size();
+            metrics.rejected().mark(failedDocuments.size());
+            progress.addFailures(failedDocuments.size());
+            progress.addFilesIndexed(listeDeFichiers.size() - failedDocuments.size());
             listeDeFichiers.stream()
                 .filter(f -> failedDocuments.contains(f.getId()))
                 .forEach(file -> log.error("Exception while indexing file {}, {}", file.getPath(), e.getFailedDocuments().get(file.getId())));
@@ -263,9 +368,13 @@ public abstract class GenericCrawler {
             listeDeFichiers
                 .forEach(file -> sb.append(file.getPath() + ","));
             log.error(sb.toString());
+            progress.addFailures(listeDeFichiers.size());
+            metrics.bulkErrors().mark();
             listeDeFichiers.clear();
         } catch (Exception e) {
             log.error("elasticsearch node is not avaible, waiting 10s and continue", e);
+            progress.addFailures(listeDeFichiers.size());
+            metrics.bulkErrors().mark();
             try {
                 Thread.sleep(10000);
             } catch (Exception ee) {
@@ -273,4 +382,47 @@ public abstract class GenericCrawler {
             }
         }
     }
+
+    /**
+     * signal that the crawler has modified the documents of the alias
+     */
+    protected void indexChanged() {
+        indexCommits.incrementAndGet();
+    }
+
+    /**
+     * end the crawl : refresh the alias so the last bulk is searchable, then mark the index as changed
+     * and set the terminal phase of the progress
+     *
+     * @param terminalPhase
+     */
+    protected void finishCrawl(CrawlerProgress.Phase terminalPhase) {
+        try {
+            elasticsearchTemplate.getClient().admin().indices().prepareRefresh(Constants.ALIAS).execute().actionGet();
+        } catch (Exception e) {
+            log.warn("unable to refresh the alias {} at the end of the crawl", Constants.ALIAS, e);
+        }
+        indexChanged();
+        progress.finish(terminalPhase);
+    }
+
+    public long getIndexCommits() {
+        return indexCommits.get();
+    }
+
+    public CrawlerProgress getProgress() {
+        return progress;
+    }
+
+    public boolean isCrawling() {
+        return progress.isRunning();
+    }
+
+    public long getIndexedFiles() {
+        return progress.getFilesIndexed();
+    }
+
+    public long getTotalFiles() {
+        return progress.getTotalFiles();
+    }
 }
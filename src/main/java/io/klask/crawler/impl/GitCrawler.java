@@ -3,7 +3,6 @@ package io.klask.crawler.impl;
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,8 +13,6 @@ import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.Future;
 
-import org.bouncycastle.jcajce.provider.digest.SHA256;
-import org.bouncycastle.util.encoders.Hex;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -33,8 +30,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 import io.klask.config.Constants;
 import io.klask.config.KlaskProperties;
+import io.klask.crawler.CrawlerProgress;
 import io.klask.crawler.CrawlerResult;
 import io.klask.crawler.ICrawler;
 import io.klask.domain.File;
@@ -47,10 +48,8 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
 
     private final Logger log = LoggerFactory.getLogger(GitCrawler.class);
 
-    private boolean crawling = false;
-
-    public GitCrawler(Repository repository, KlaskProperties klaskProperties, ElasticsearchTemplate elasticsearchTemplate) {
-        super(repository, klaskProperties, elasticsearchTemplate);
+    public GitCrawler(Repository repository, KlaskProperties klaskProperties, ElasticsearchTemplate elasticsearchTemplate, MetricRegistry metricRegistry) {
+        super(repository, klaskProperties, elasticsearchTemplate, metricRegistry);
     }
 
     /**
@@ -69,7 +68,7 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
         try {
             indexBulkFilesIfNecessary();
             File document = constructFile(fileName, extension, pathFile, this.repository.getName(), branch);
-            listeDeFichiers.add(document);
+            addFileToBulk(document);
 
         } catch (IOException e) {
             log.error("Exception while reading file {}", pathFile);
@@ -80,7 +79,7 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
     }
 
     /**
-     * Construct a {@link File} with a version and readContent
+     * Construct a {@link File} with a version and its decoded content
      *
      * @param name
      * @param extension
@@ -90,32 +89,35 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
      */
     protected File constructFile(String name, String extension, Path path, String project, String branch) throws IOException {
 
-        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-        long size = attrs.size();
+        try (Timer.Context ignored = metrics.document().time()) {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attrs.size();
 
 
-        String content = null;
-        if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
-            || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
-            log.trace("parsing only name on file : {}", path);
-        } else {
-            content = readContent(path);
+            byte[] content = null;
+            if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
+                || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
+                log.trace("parsing only name on file : {}", path);
+            } else {
+                content = readBytes(path);
+            }
+            String pathComplet = this.repository.getPath() + "@" + branch + path.toString();
+            //sha3 on the file's path. It should be the same, even after a full reindex
+            File fichier = new File(
+                convertSHA256(pathComplet),
+                name,
+                extension,
+                pathComplet,
+                project,
+                null,
+                branch,
+                size
+            );
+            if (content != null) {
+                setContent(fichier, content);
+            }
+            return fichier;
         }
-        String pathComplet = this.repository.getPath() + "@" + branch + path.toString();
-        //sha3 on the file's path. It should be the same, even after a full reindex
-        SHA256.Digest md = new SHA256.Digest();
-        md.update(pathComplet.getBytes(StandardCharsets.UTF_8));
-
-        return new File(
-            Hex.toHexString(md.digest()),
-            name,
-            extension,
-            pathComplet,
-            project,
-            content,
-            branch,
-            size
-        );
     }
 
 
@@ -181,6 +183,7 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
         org.eclipse.jgit.lib.Repository repositoryGit = git.getRepository();
         Path workingDir = repositoryGit.getWorkTree().toPath();
         try {
+            progress.setPhase(CrawlerProgress.Phase.COUNTING);
             //this walk is just for counting docs
             long docsCount = Files.walk(workingDir)
                 //.peek(p -> displayfiltered(p, "before"))
@@ -194,6 +197,8 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
             map.entrySet().forEach(e -> log.info("maps [{}] = {}", e.getKey(), e.getValue()));
 
             log.debug("{} files to index", docsCount);
+            progress.addTotalFiles(docsCount);
+            progress.setPhase(CrawlerProgress.Phase.INDEXING);
 
             try (RevWalk walk = new RevWalk(repositoryGit)) {
                 ObjectId branchId = repositoryGit.resolve("refs/heads/" + branch);
@@ -232,35 +237,39 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
 
                         }
                         if (loader.getType() == OBJ_BLOB) {
-                            long size = loader.getSize();
-
-                            String content = null;
-
-                            if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
-                                    || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
-                                log.trace("parsing only name on file : {}", pathAndFileName);
-                            } else {
-                                byte[] bytes = loader.getBytes();
-                                content = new String(bytes, Charset.forName("utf-8"));
-                                log.trace("tree size    : {}", loader.getSize());
+                            File fichier;
+                            try (Timer.Context ignored = metrics.document().time()) {
+                                long size = loader.getSize();
+
+                                byte[] bytes = null;
+
+                                if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
+                                        || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
+                                    log.trace("parsing only name on file : {}", pathAndFileName);
+                                } else {
+                                    try (Timer.Context ignoredRead = metrics.read().time()) {
+                                        bytes = loader.getBytes();
+                                    }
+                                    log.trace("tree size    : {}", loader.getSize());
+                                }
+                                String pathComplet = this.repository.getPath() + "@" + branch + ":/" + pathAndFileName;
+                                //sha3 on the file's path. It should be the same, even after a full reindex
+                                fichier = new File(
+                                        convertSHA256(pathComplet),
+                                        fileName,
+                                        extension,
+                                        pathComplet,
+                                        this.repository.getName(),
+                                        null,
+                                        branch,
+                                        size
+                                        );
+                                if (bytes != null) {
+                                    setContent(fichier, bytes);
+                                }
                             }
-                            String pathComplet = this.repository.getPath() + "@" + branch + ":/" + pathAndFileName;
-                            //sha3 on the file's path. It should be the same, even after a full reindex
-                            SHA256.Digest md = new SHA256.Digest();
-                            md.update(pathComplet.getBytes("UTF-8"));
-
-                            File fichier = new File(
-                                    Hex.toHexString(md.digest()),
-                                    fileName,
-                                    extension,
-                                    pathComplet,
-                                    this.repository.getName(),
-                                    content,
-                                    branch,
-                                    size
-                                    );
-
-                            listeDeFichiers.add(fichier);
+
+                            addFileToBulk(fichier);
                             indexBulkFilesIfNecessary();
                         }
 
@@ -276,16 +285,23 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
 
         } catch (final IOException e) {
             log.error("Exception in crawler method", e);
-        } finally {
-            this.crawling = false;
         }
     }
 
     @Override
     public CrawlerResult start() {
-        this.crawling = true;
-        initializeProperties();
-        checkoutAndWalkThroughGit();
+        progress.start();
+        progress.setPhase(CrawlerProgress.Phase.CHECKOUT);
+        CrawlerProgress.Phase terminalPhase = CrawlerProgress.Phase.FINISHED;
+        try {
+            initializeProperties();
+            checkoutAndWalkThroughGit();
+        } catch (GitAPIException | IOException | RuntimeException e) {
+            log.error("Exception in git crawler", e);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
+        } finally {
+            finishCrawl(terminalPhase);
+        }
 
         return null;
 
@@ -305,30 +321,19 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
     public void stop() {
     }
 
-    @Override
-    public boolean isCrawling() {
-        return this.crawling;
-    }
-
-    @Override
-    public long getIndexedFiles() {
-        return -1L;
-    }
-
-    @Override
-    public long getTotalFiles() {
-        return -1L;
-    }
-
-    private void checkoutAndWalkThroughGit() {
+    /**
+     * clone or open the repository, then index each remote branch
+     *
+     * @throws GitAPIException if the repository can't be cloned or its branches listed
+     * @throws IOException if the working directory of the repository can't be opened
+     */
+    private void checkoutAndWalkThroughGit() throws GitAPIException, IOException {
         Path workingDir = Paths.get(klaskProperties.getCrawler().getWorkingDirectory());
         workingDir.toFile().mkdirs();
         Path pathRepo = Paths.get(workingDir.toAbsolutePath() + "/" + repository.getName());
         if (Files.exists(pathRepo)) {
             try (Git repoGit = Git.open(pathRepo.toFile())) {
                 pullRepositoryGit(repoGit);
-            } catch (GitAPIException | IOException e) {
-                log.error("exception while opening git directory in {} : {}", pathRepo.toString(), e.getMessage(), e);
             }
         } else {
 
@@ -349,8 +354,6 @@ public class GitCrawler extends GenericCrawler implements ICrawler {
 
                 pullRepositoryGit(repoGit);
 
-            } catch (GitAPIException e) {
-                log.error("clone repository exception : {}", e.getMessage(), e);
             } finally {
                 log.debug("finally gitcrawler checkout : {}", repository.getName());
             }
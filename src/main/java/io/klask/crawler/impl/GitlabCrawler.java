@@ -1,7 +1,11 @@
 package io.klask.crawler.impl;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 import io.klask.config.Constants;
 import io.klask.config.KlaskProperties;
+import io.klask.crawler.CrawlerProgress;
 import io.klask.crawler.CrawlerResult;
 import io.klask.crawler.ICrawler;
 import io.klask.domain.File;
@@ -9,8 +13,6 @@ import io.klask.domain.GitlabProject;
 import io.klask.domain.Repository;
 import lombok.extern.slf4j.Slf4j;
 
-import org.bouncycastle.jcajce.provider.digest.SHA256;
-import org.bouncycastle.util.encoders.Hex;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -44,6 +46,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -52,18 +55,23 @@ public class GitlabCrawler extends GenericCrawler implements ICrawler {
     private final RestTemplate rt = new RestTemplate();
 
     public GitlabCrawler(Repository repository, KlaskProperties klaskProperties,
-            ElasticsearchTemplate elasticsearchTemplate) {
-        super(repository, klaskProperties, elasticsearchTemplate);
+            ElasticsearchTemplate elasticsearchTemplate, MetricRegistry metricRegistry) {
+        super(repository, klaskProperties, elasticsearchTemplate, metricRegistry);
     }
 
     @Override
     public CrawlerResult start() {
 
-        initializeProperties();
+        progress.start();
+        CrawlerProgress.Phase terminalPhase = CrawlerProgress.Phase.FINISHED;
+        //the other projects are still crawled when one of them can't be cloned, but the crawl has failed
+        AtomicBoolean failedProject = new AtomicBoolean();
 
         try {
+            initializeProperties();
             retrieveGitlabProjects()
                 .forEach(prj -> {
+                    progress.setPhase(CrawlerProgress.Phase.CHECKOUT);
                     try(Git repoGit = this.checkoutRepoGit(prj);) {
 
                         getRemoteBranches(repoGit).stream()
@@ -76,10 +84,20 @@ public class GitlabCrawler extends GenericCrawler implements ICrawler {
                             });
                     } catch (GitAPIException | IOException e) {
                         log.error("Exception in crawler method", e);
+                        failedProject.set(true);
                     }
                 });
+            if (failedProject.get()) {
+                terminalPhase = CrawlerProgress.Phase.FAILED;
+            }
         } catch (RestClientException e) {
             log.error("Error calling Gitlab API", e);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
+        } catch (RuntimeException e) {
+            log.error("Exception in gitlab crawler", e);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
+        } finally {
+            finishCrawl(terminalPhase);
         }
         return null;
     }
@@ -115,21 +133,6 @@ public class GitlabCrawler extends GenericCrawler implements ICrawler {
     public void stop() {
     }
 
-    @Override
-    public boolean isCrawling() {
-        return false;
-    }
-
-    @Override
-    public long getIndexedFiles() {
-        return -1L;
-    }
-
-    @Override
-    public long getTotalFiles() {
-        return -1L;
-    }
-
     private Git checkoutRepoGit(GitlabProject project) throws IOException, GitAPIException {
         Path workingDir = Paths.get(klaskProperties.getCrawler().getWorkingDirectory());
         workingDir.toFile().mkdirs();
@@ -189,8 +192,11 @@ public class GitlabCrawler extends GenericCrawler implements ICrawler {
         org.eclipse.jgit.lib.Repository repositoryGit = git.getRepository();
         Path workingDir = repositoryGit.getWorkTree().toPath();
         try(RevWalk walk = new RevWalk(repositoryGit)) {
-            log.info("Project = {} - Branch = {} - Files to index = {}", project.getName(), branch,
-                    calculateFilesToIndex(workingDir));
+            progress.setPhase(CrawlerProgress.Phase.COUNTING);
+            long filesToIndex = calculateFilesToIndex(workingDir);
+            log.info("Project = {} - Branch = {} - Files to index = {}", project.getName(), branch, filesToIndex);
+            progress.addTotalFiles(filesToIndex);
+            progress.setPhase(CrawlerProgress.Phase.INDEXING);
 
             RevCommit commit = walk.parseCommit(branchRef.getObjectId());
             RevTree tree = commit.getTree();
@@ -223,34 +229,39 @@ public class GitlabCrawler extends GenericCrawler implements ICrawler {
                     }
 
                     if (loader.getType() == OBJ_BLOB) {
-                        long size = loader.getSize();
-
-                        String content = null;
-
-                        if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
-                            || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
-                            log.trace("parsing only name on file : {}", pathAndFileName);
-                        } else {
-                            content = new String(loader.getBytes(), StandardCharsets.UTF_8);
-                            log.trace("tree size    : {}", loader.getSize());
+                        File fichier;
+                        try (Timer.Context ignored = metrics.document().time()) {
+                            long size = loader.getSize();
+
+                            byte[] bytes = null;
+
+                            if ((!readableExtensionSet.contains(extension) && !"".equals(extension))
+                                || size > Constants.MAX_SIZE_FOR_INDEXING_ONE_FILE) {
+                                log.trace("parsing only name on file : {}", pathAndFileName);
+                            } else {
+                                try (Timer.Context ignoredRead = metrics.read().time()) {
+                                    bytes = loader.getBytes();
+                                }
+                                log.trace("tree size    : {}", loader.getSize());
+                            }
+                            String projectPath = project.getUrl().substring(0, project.getUrl().lastIndexOf(".git"));
+                            String pathComplet = projectPath + "/-/blob/" + branch + "/" + pathAndFileName;
+                            //sha3 on the file's path. It should be the same, even after a full reindex
+                            fichier = new File(
+                                convertSHA256(pathComplet),
+                                fileName,
+                                extension,
+                                pathComplet,
+                                project.getName(),
+                                null,
+                                branch,
+                                size
+                            );
+                            if (bytes != null) {
+                                setContent(fichier, bytes);
+                            }
                         }
-                        String projectPath = project.getUrl().substring(0, project.getUrl().lastIndexOf(".git"));
-                        String pathComplet = projectPath + "/-/blob/" + branch + "/" + pathAndFileName;
-                        //sha3 on the file's path. It should be the same, even after a full reindex
-                        SHA256.Digest md = new SHA256.Digest();
-                        md.update(pathComplet.getBytes(StandardCharsets.UTF_8));
-
-                        File fichier = new File(
-                            Hex.toHexString(md.digest()),
-                            fileName,
-                            extension,
-                            pathComplet,
-                            project.getName(),
-                            content,
-                            branch,
-                            size
-                        );
-                        listeDeFichiers.add(fichier);
+                        addFileToBulk(fichier);
                         indexBulkFilesIfNecessary();
                     }
 
@@ -2,7 +2,6 @@ package io.klask.crawler.impl;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
@@ -26,7 +25,11 @@ import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 import org.tmatesoft.svn.core.wc.SVNWCUtil;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 import io.klask.config.KlaskProperties;
+import io.klask.crawler.CrawlerProgress;
 import io.klask.crawler.CrawlerResult;
 import io.klask.crawler.ICrawler;
 import io.klask.crawler.svn.SVNVisitorCrawler;
@@ -52,8 +55,6 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
     private FileSearchRepository fileSearchRepository;
     private RepositoryRepository repositoriesRepository;
 
-    private boolean crawling = false;
-
     private boolean abortAsked = false;
 
     private SvnProgressCanceller svnProgressCanceller = new SvnProgressCanceller();
@@ -71,9 +72,10 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
      * @param fileSearchRepository
      * @param elasticsearchTemplate
      * @param repositoriesRepository
+     * @param metricRegistry
      */
-    public SVNCrawler(Repository repository, KlaskProperties klaskProperties, FileSearchRepository fileSearchRepository, ElasticsearchTemplate elasticsearchTemplate, RepositoryRepository repositoriesRepository) {
-        super(repository, klaskProperties, elasticsearchTemplate);
+    public SVNCrawler(Repository repository, KlaskProperties klaskProperties, FileSearchRepository fileSearchRepository, ElasticsearchTemplate elasticsearchTemplate, RepositoryRepository repositoriesRepository, MetricRegistry metricRegistry) {
+        super(repository, klaskProperties, elasticsearchTemplate, metricRegistry);
         this.klaskProperties = klaskProperties;
         this.fileSearchRepository = fileSearchRepository;
 
@@ -87,8 +89,9 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
 
     @Override
     public CrawlerResult start() {
+        progress.start();
+        CrawlerProgress.Phase terminalPhase = CrawlerProgress.Phase.FINISHED;
         try {
-            this.crawling = true;
             this.initialize();
 //            this.originRevision=0;//TODO change me in initialize method
 //            this.lastRevision=206361;//TODO change me in initialize method
@@ -111,6 +114,7 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
             long originRevision = this.originRevision;
 
             log.info("Start parsing files in {} (r{})", this.repository.getPath(), lastRevision);
+            progress.setPhase(CrawlerProgress.Phase.INDEXING);
 
             //with this reporter we just say to the repository server - please, send us the entire tree,
             //we do not have any local data
@@ -151,10 +155,12 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
 
         } catch (final SVNCancelException e) {
             log.warn("Operation cancelled by user");
+            terminalPhase = CrawlerProgress.Phase.CANCELLED;
         } catch (final SVNException e) {
             log.error("Exception in SVN crawler", e);
+            terminalPhase = CrawlerProgress.Phase.FAILED;
         } finally {
-            this.crawling = false;
+            finishCrawl(terminalPhase);
         }
 
         return null;
@@ -199,14 +205,16 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
                 log.trace("add file {}", entry.getKey());
                 SVNProperties fileProperties = new SVNProperties();
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                svnRepository.getFile(entry.getKey(), this.lastRevision, fileProperties, baos);
+                try (Timer.Context ignored = metrics.read().time()) {
+                    svnRepository.getFile(entry.getKey(), this.lastRevision, fileProperties, baos);
+                }
                 File currentFile = createFile(entry.getKey());
                 currentFile.setVersion("TODO");
                 currentFile.setProject("TODO");
                 currentFile.setLastAuthor(fileProperties.getStringValue("svn:entry:last-author"));
                 currentFile.setLastDate(fileProperties.getStringValue("svn:entry:committed-date"));
                 currentFile.setSize((long) baos.size());
-                currentFile.setContent(new String(baos.toByteArray(), Charset.forName("iso-8859-1")));
+                setContent(currentFile, baos.toByteArray());
                 addFile(currentFile);
             }
         }
@@ -265,7 +273,7 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
 
         try {
             indexBulkFilesIfNecessary();
-            listeDeFichiers.add(file);
+            addFileToBulk(file);
 
         } catch (Exception e) {
             log.error("Exception while reading file {}",file, e);
@@ -291,17 +299,6 @@ public class SVNCrawler extends GenericCrawler implements ICrawler {
         this.svnProgressCanceller.setAbortAsked(true);
     }
 
-    @Override
-    public boolean isCrawling(){return crawling; }
-
-    @Override
-    public long getIndexedFiles(){return -1L;}
-
-    @Override
-    public long getTotalFiles() {
-        return -1;
-    }
-
     public SVNRepository getSvnRepository() {
         return svnRepository;
     }
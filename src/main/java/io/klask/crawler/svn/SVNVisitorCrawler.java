@@ -17,7 +17,6 @@ import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
 
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
@@ -101,7 +100,7 @@ public class SVNVisitorCrawler implements ISVNEditor {
         if(skipTags || currentFileExcluded)return;
         log.trace("closeFile {}:{}", path, md5Checksum);
         if (currentFileReadable) {
-            currentFile.setContent(new String(outputStream.toByteArray(), Charset.forName("iso-8859-1")));
+            this.svnCrawler.setContent(currentFile, outputStream.toByteArray());
 
         }
         currentFile.setSize(currentSize);//TODO fix the int => long problem
@@ -1,5 +1,6 @@
 package io.klask.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.klask.config.Constants;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -9,6 +10,7 @@ import org.springframework.data.elasticsearch.annotations.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -89,9 +91,31 @@ public class File implements Serializable {
     //    @Field(type = FieldType.Long)
     private Long size;
 
+    //names of the classes, functions, methods... declared in the content, extracted by the crawler
+    private List<String> symbols;
+
+    //sha256 of the content, to collapse the same file in several versions
+    private String contentHash;
+
+    //charset of the raw content detected by the crawler, the content is stored decoded
+    private String charset;
+
+    //versions which contain the same file, only in the collapsed search results
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> versions;
+
+    //inputs of the completion suggester : name, path segments, project and symbols
+    //the completion field rejects null values, so it is absent from the document if not set
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> suggest;
+
 
     private Float score;
 
+    //lines of the content which match the query, only in the search results
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<FileLine> lines;
+
 
     public File() {
 
@@ -180,6 +204,54 @@ public class File implements Serializable {
         this.score = score;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    public List<String> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(List<String> versions) {
+        this.versions = versions;
+    }
+
+    public List<FileLine> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<FileLine> lines) {
+        this.lines = lines;
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public void setSymbols(List<String> symbols) {
+        this.symbols = symbols;
+    }
+
+    public List<String> getSuggest() {
+        return suggest;
+    }
+
+    public void setSuggest(List<String> suggest) {
+        this.suggest = suggest;
+    }
+
     public String getLastAuthor() {
         return lastAuthor;
     }
@@ -0,0 +1,60 @@
+package io.klask.domain;
+
+import java.io.Serializable;
+
+/**
+ * A line of a file returned with a search result : a line which matches the query, or a context line around it
+ */
+public class FileLine implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //starts at 1
+    private int number;
+
+    private String text;
+
+    private boolean match;
+
+    public FileLine() {
+    }
+
+    public FileLine(int number, String text, boolean match) {
+        this.number = number;
+        this.text = text;
+        this.match = match;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public boolean isMatch() {
+        return match;
+    }
+
+    public void setMatch(boolean match) {
+        this.match = match;
+    }
+
+    @Override
+    public String toString() {
+        return "FileLine{" +
+            "number=" + number +
+            ", match=" + match +
+            ", text='" + text + "'" +
+            '}';
+    }
+}
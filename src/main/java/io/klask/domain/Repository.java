@@ -13,6 +13,8 @@ import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.elasticsearch.annotations.Document;
 
 import io.klask.domain.enumeration.RepositoryType;
@@ -22,6 +24,7 @@ import io.klask.domain.enumeration.RepositoryType;
  */
 @Entity
 @Table(name = "repository")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Document(indexName = "repository", replicas = 0, shards = 1)
 public class Repository implements Serializable {
 
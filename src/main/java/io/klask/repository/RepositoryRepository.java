@@ -2,10 +2,19 @@ package io.klask.repository;
 
 import io.klask.domain.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.List;
 
 /**
  * Spring Data JPA repository for the Repository entity.
  */
 public interface RepositoryRepository extends JpaRepository<Repository, Long> {
 
+    //asked by each crawl and by the creation of the indexes, the query cache is invalidated by any write on the table
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Repository> findAll();
+
 }
@@ -2,6 +2,9 @@ package io.klask.repository;
 
 import io.klask.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -20,6 +23,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneByEmail(String email);
 
+    //asked by the authentication of each login and by most of the account requests
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<User> findOneByLogin(String login);
 
     Optional<User> findOneById(Long userId);
@@ -0,0 +1,106 @@
+package io.klask.repository.search;
+
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.aggregation.impl.AggregatedPageImpl;
+
+import java.util.List;
+
+/**
+ * A page of results with the cursor to fetch the next one
+ *
+ * @see SearchCursor
+ */
+public class CursorPage<T> extends AggregatedPageImpl<T> {
+
+    private final Pageable pageable;
+
+    private final String nextCursor;
+
+    private long took;
+
+    private boolean terminatedEarly;
+
+    private int failedShards;
+
+    //true for a copy of a page served from the search cache
+    private boolean cached;
+
+    public CursorPage(List<T> content, Pageable pageable, long total, Aggregations aggregations, String nextCursor) {
+        this(content, pageable, total, aggregations, nextCursor, -1L);
+    }
+
+    public CursorPage(List<T> content, Pageable pageable, long total, Aggregations aggregations, String nextCursor, long took) {
+        super(content, pageable, total, aggregations);
+        this.pageable = pageable;
+        this.nextCursor = nextCursor;
+        this.took = took;
+    }
+
+    /**
+     * @return the cursor of the next page, null if there is no next page or if the sort can't be used for a cursor
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return the time spent in elasticsearch to build the page (sum of the took of the requests) in ms,
+     * 0 if the page comes from the search cache, -1 if unknown
+     */
+    public long getTook() {
+        return took;
+    }
+
+    /**
+     * @return true if the search stopped after klask.search.terminateAfter documents by shard,
+     * the total is then a lower bound
+     */
+    public boolean isTerminatedEarly() {
+        return terminatedEarly;
+    }
+
+    void setTerminatedEarly(boolean terminatedEarly) {
+        this.terminatedEarly = terminatedEarly;
+    }
+
+    /**
+     * @return the number of shards which failed to answer, the page is then partial
+     */
+    public int getFailedShards() {
+        return failedShards;
+    }
+
+    void addFailedShards(int failedShards) {
+        this.failedShards = Math.max(this.failedShards, failedShards);
+    }
+
+    /**
+     * @return true if the page comes from the search cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * the page as served from the search cache, the cached page itself is left untouched
+     *
+     * @return a copy flagged as cached, without took
+     */
+    public CursorPage<T> cachedCopy() {
+        CursorPage<T> copy = new CursorPage<>(getContent(), pageable, getTotalElements(), getAggregations(), nextCursor, 0L);
+        copy.terminatedEarly = terminatedEarly;
+        copy.failedShards = failedShards;
+        copy.cached = true;
+        return copy;
+    }
+
+    /**
+     * add the took of a request made after the main one to complete the page
+     */
+    void addTook(long took) {
+        if (this.took >= 0) {
+            this.took += took;
+        }
+    }
+}
@@ -1,24 +1,56 @@
 package io.klask.repository.search;
 
 import io.klask.domain.File;
-import org.springframework.data.domain.Page;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.aggregation.AggregatedPage;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by jeremie on 27/06/16.
  */
 public interface CustomSearchRepository {
 
+    // tags around the matching terms in the whole content highlighted by scrollSearch
+    String SCROLL_PRE_TAG = "\u0002";
+    String SCROLL_POST_TAG = "\u0003";
+
+    // groups of customSearchCollapsed : same content, or same path
+    String COLLAPSE_BY_CONTENT = "content";
+    String COLLAPSE_BY_PATH = "path";
+
     Map<String, Long> aggregateByRawField(String field, String filtre);
 
 //    Page<File> findWithHighlightedSummary(Pageable pageable, String query, List<String> version, List<String> project);
 
-    Page<File> customSearchWithHighlightedSummary(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension);
+    CursorPage<File> customSearchWithHighlightedSummary(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String cursor, boolean highlight, boolean exactCount, boolean lines);
+
+    CursorPage<File> customSearchWithFacets(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String cursor, boolean lines);
+
+    CursorPage<File> customSearchCollapsed(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String collapse, boolean lines);
+
+    CursorPage<File> customPhraseSearch(Pageable pageable, String phrase, List<String> version, List<String> project, List<String> extension, String cursor, boolean lines);
+
+    CursorPage<File> customRegexSearch(Pageable pageable, String regex, List<String> version, List<String> project, List<String> extension);
 
-    Page<File> customfindAll(Pageable pageable, List<String> version, List<String> project, List<String> extension);
+    Map<String, Long> getFacetCounts(AggregatedPage<File> page, String field);
+
+    SearchProfile profileSearch(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension);
+
+    CursorPage<File> customfindAll(Pageable pageable, List<String> version, List<String> project, List<String> extension, String cursor);
 
     File findOne(String id);
+
+    SearchHit findOneWithoutContent(String id, String... includes);
+
+    Resource findContent(String id) throws IOException;
+
+    List<String> suggest(String prefix, int size);
+
+    void scrollSearch(String query, List<String> version, List<String> project, List<String> extension, boolean highlightContent, Consumer<SearchHit> consumer);
 }
@@ -1,32 +1,67 @@
 package io.klask.repository.search;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.suggest.SuggestResponse;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.highlight.HighlightBuilder;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.aggregation.AggregatedPage;
 import org.springframework.data.elasticsearch.core.query.Criteria;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
@@ -34,8 +69,11 @@ import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilde
 import org.springframework.data.elasticsearch.core.query.StringQuery;
 
 import io.klask.config.Constants;
+import io.klask.config.KlaskProperties;
 import io.klask.domain.File;
+import io.klask.repository.search.mapper.MatchingLinesMapper;
 import io.klask.repository.search.mapper.ResultHighlightMapper;
+import io.klask.repository.search.mapper.ResultRegexMapper;
 import io.klask.repository.search.mapper.ResultTruncatedContentMapper;
 import io.klask.web.rest.util.Queries;
 
@@ -45,22 +83,63 @@ import io.klask.web.rest.util.Queries;
 @Configuration
 public class CustomSearchRepositoryImpl implements CustomSearchRepository {
 
+    //streaming parser of the _source in findContent
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    //scroll context kept between two batches of scrollSearch
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    //documents by batch in scrollSearch, less if the whole content is highlighted
+    private static final int SCROLL_SIZE = 500;
+    private static final int SCROLL_SIZE_WITH_CONTENT = 50;
+
+    //fields of the groups of customSearchCollapsed
+    private static final Map<String, String> COLLAPSE_FIELDS = new LinkedHashMap<>();
+
+    static {
+        COLLAPSE_FIELDS.put(COLLAPSE_BY_CONTENT, "contentHash");
+        COLLAPSE_FIELDS.put(COLLAPSE_BY_PATH, "path.raw");
+    }
+
+    //hits read by batch by customSearchCollapsed to find the groups of the page
+    private static final int COLLAPSE_BATCH_SIZE = 500;
+
+    //facets returned with the results by customSearchWithFacets
+    private static final String[] FACET_FIELDS = {"version", "project", "extension"};
+
+    private static final String SUGGESTION_NAME = "files";
+
     private final Logger log = LoggerFactory.getLogger(CustomSearchRepositoryImpl.class);
 
     @Inject
     private ElasticsearchTemplate elasticsearchTemplate;
 
+    @Inject
+    private KlaskProperties klaskProperties;
+
     /**
      * Return records for query, and highlight the fragment of content with the ResultHighlightMapper
+     * The results are cached with the index generation in the key, so a crawl which modifies the alias
+     * invalidates all the previous entries
      *
      * @param pageable
      * @param query
      * @param version
      * @param project
+     * @param cursor the cursor of the previous page, null for a paging with from/size
+     * @param highlight false for the fast mode, without any fragment of content
+     * @param exactCount false to stop the search after klask.search.terminateAfter documents by shard, the
+     *                   total and the order of the results are then approximate
+     * @param lines true to add the line numbers and the context lines of the fragments, which reads the content
+     *              of the files on the page
      * @return
      */
     @Override
-    public Page<File> customSearchWithHighlightedSummary(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension) {
+    @Cacheable(cacheNames = Constants.SEARCH_CACHE,
+        key = "{@crawlerService.indexGeneration, #query, #version, #project, #extension, #pageable, #cursor, #highlight, #exactCount, #lines}",
+        unless = "#result == null")
+    public CursorPage<File> customSearchWithHighlightedSummary(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String cursor, boolean highlight, boolean exactCount, boolean lines) {
+        SearchCacheMiss.mark();
         if (StringUtils.isEmpty(query)) {
             log.error("customSearchWithHighlightedSummary return null in case where query = {}", query);
             return null;
@@ -68,38 +147,439 @@ public class CustomSearchRepositoryImpl implements CustomSearchRepository {
         NativeSearchQueryBuilder nativeSearchQueryBuilder = Queries.constructSearchQueryBuilder(query);
         NativeSearchQuery nativeSearchQuery = nativeSearchQueryBuilder.build();
 
-        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, version, project, extension);
+        List<Sort.Order> orders = resolveSortOrders(pageable, true);
+        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, orders, cursor, version, project, extension, false);
         searchRequestBuilder.setFetchSource(null, "content");//dont get the content, we have the highlight !
+        if (!exactCount) {
+            searchRequestBuilder.setTerminateAfter(klaskProperties.getSearch().getTerminateAfter());
+        }
+        QueryBuilder plainHighlightQuery = plainHighlightQuery(query);
+        if (highlight && addHighlight(searchRequestBuilder, plainHighlightQuery == null)) {
+            addHighlightQuery(searchRequestBuilder, query);
+        }
 
         log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
         SearchResponse response = searchRequestBuilder.execute().actionGet();
         log.trace("<== Response ES <== \n{}", response);
 
-        ResultHighlightMapper mapper = new ResultHighlightMapper();
-        return mapper.mapResults(response, File.class, nativeSearchQuery.getPageable());
+        ResultHighlightMapper mapper = highlightMapper();
+        CursorPage<File> page = toCursorPage(mapper.mapResults(response, File.class, pageable), response, pageable, orders, cursor);
+        SearchResponse fragments = highlight && plainHighlightQuery != null ?
+            highlightPlain(response, page, "content", plainHighlightQuery) : response;
+        if (lines) {
+            addMatchingLines(fragments, page);
+        }
+        return page;
 
     }
 
 
+    /**
+     * Return records for query with the highlighted fragments, plus the version, project and extension facets
+     * computed in the same request. The facets are aggregated on the query only (the filters are post filters),
+     * so they are the same as the ones returned by aggregateByRawField
+     *
+     * @param pageable
+     * @param query
+     * @param version
+     * @param project
+     * @param extension
+     * @param cursor the cursor of the previous page, null for a paging with from/size
+     * @param lines true to add the line numbers and the context lines of the fragments, which reads the content
+     *              of the files on the page
+     * @return
+     */
+    @Override
+    @Cacheable(cacheNames = Constants.SEARCH_CACHE,
+        key = "{@crawlerService.indexGeneration, 'facets', #query, #version, #project, #extension, #pageable, #cursor, #lines}",
+        unless = "#result == null")
+    public CursorPage<File> customSearchWithFacets(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String cursor, boolean lines) {
+        SearchCacheMiss.mark();
+        if (StringUtils.isEmpty(query)) {
+            log.error("customSearchWithFacets return null in case where query = {}", query);
+            return null;
+        }
+        NativeSearchQueryBuilder nativeSearchQueryBuilder = Queries.constructSearchQueryBuilder(query);
+        NativeSearchQuery nativeSearchQuery = nativeSearchQueryBuilder.build();
+
+        List<Sort.Order> orders = resolveSortOrders(pageable, true);
+        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, orders, cursor, version, project, extension, true);
+        searchRequestBuilder.setFetchSource(null, "content");//dont get the content, we have the highlight !
+        QueryBuilder plainHighlightQuery = plainHighlightQuery(query);
+        if (addHighlight(searchRequestBuilder, plainHighlightQuery == null)) {
+            addHighlightQuery(searchRequestBuilder, query);
+        }
+        for (String field : FACET_FIELDS) {
+            searchRequestBuilder.addAggregation(constructTermsAggregation(field));
+        }
+
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        log.trace("<== Response ES <== \n{}", response);
+
+        ResultHighlightMapper mapper = highlightMapper();
+        CursorPage<File> page = toCursorPage(mapper.mapResults(response, File.class, pageable), response, pageable, orders, cursor);
+        SearchResponse fragments = plainHighlightQuery != null ?
+            highlightPlain(response, page, "content", plainHighlightQuery) : response;
+        if (lines) {
+            addMatchingLines(fragments, page);
+        }
+        return page;
+    }
+
+    /**
+     * Return records for query with one hit by group of identical files : by content hash, or by path.
+     * Elasticsearch 2.4 has no field collapsing, so the hits are read in the order of the sort (only the
+     * collapse field is fetched) until the groups of the page are found, then the first hit of each group is
+     * fetched with its highlight, and the versions of each group are aggregated.
+     * The total is exact when the scan reads all the hits of the search window. Otherwise it is the HyperLogLog
+     * estimate of the cardinality aggregation, limited to the groups reachable within the search window
+     *
+     * @param pageable
+     * @param query
+     * @param version
+     * @param project
+     * @param extension
+     * @param collapse the field of the groups, COLLAPSE_BY_CONTENT or COLLAPSE_BY_PATH
+     * @param lines true to add the line numbers and the context lines of the fragments, which reads the content
+     *              of the files on the page
+     * @return the first file of each group, with the versions of the group
+     * @throws IllegalArgumentException if the collapse field is unknown
+     */
+    @Override
+    @Cacheable(cacheNames = Constants.SEARCH_CACHE,
+        key = "{@crawlerService.indexGeneration, 'collapse', #collapse, #query, #version, #project, #extension, #pageable, #lines}",
+        unless = "#result == null")
+    public CursorPage<File> customSearchCollapsed(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension, String collapse, boolean lines) {
+        SearchCacheMiss.mark();
+        if (StringUtils.isEmpty(query)) {
+            log.error("customSearchCollapsed return null in case where query = {}", query);
+            return null;
+        }
+        String field = COLLAPSE_FIELDS.get(collapse);
+        if (field == null) {
+            throw new IllegalArgumentException("unknown collapse " + collapse + ", expected one of " + COLLAPSE_FIELDS.keySet());
+        }
+        QueryBuilder searchQuery = QueryBuilders.boolQuery()
+            .must(Queries.constructQuery(query))
+            .filter(constructFilter(version, project, extension));
+        List<Sort.Order> orders = resolveSortOrders(pageable, true);
+
+        //first hit of each group, in the order of the sort
+        Map<String, String> firstIdByGroup = new LinkedHashMap<>();
+        int wanted = pageable.getOffset() + pageable.getPageSize();
+        int from = 0;
+        long totalHits;
+        long totalGroups = 0;
+        long took = 0;
+        int failedShards = 0;
+        do {
+            SearchRequestBuilder scan = this.templateResponse()
+                .setQuery(searchQuery)
+                .setFrom(from)
+                .setSize(Math.min(COLLAPSE_BATCH_SIZE, Constants.MAX_RESULT_SEARCH_WINDOW - from))
+                .setFetchSource(new String[]{field.replace(".raw", "")}, null);
+            orders.forEach(order -> scan.addSort(
+                new FieldSortBuilder(order.getProperty()).unmappedType("string").order(SortOrder.valueOf(order.getDirection().name()))));
+            if (from == 0) {
+                scan.addAggregation(AggregationBuilders.cardinality("groups").field(field));
+            }
+            SearchResponse response = scan.execute().actionGet();
+            took += response.getTookInMillis();
+            failedShards = Math.max(failedShards, response.getFailedShards());
+            if (from == 0) {
+                totalGroups = ((Cardinality) response.getAggregations().get("groups")).getValue();
+            }
+            totalHits = response.getHits().getTotalHits();
+            for (SearchHit hit : response.getHits()) {
+                Object group = hit.getSource().get(field.replace(".raw", ""));
+                firstIdByGroup.putIfAbsent(group == null ? hit.getId() : group.toString(), hit.getId());
+            }
+            from += response.getHits().getHits().length;
+            if (response.getHits().getHits().length == 0) {
+                break;
+            }
+        } while (firstIdByGroup.size() < wanted && from < totalHits && from < Constants.MAX_RESULT_SEARCH_WINDOW);
+        //only the groups within the search window can be paged. The cardinality is an estimate, clamped between
+        //the groups already found and the groups the hits left in the window could still add
+        long reachableHits = Math.min(totalHits, Constants.MAX_RESULT_SEARCH_WINDOW);
+        totalGroups = Math.max(firstIdByGroup.size(),
+            Math.min(totalGroups, firstIdByGroup.size() + Math.max(0, reachableHits - from)));
+
+        List<String> groups = firstIdByGroup.keySet().stream()
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .collect(Collectors.toList());
+        if (groups.isEmpty()) {
+            CursorPage<File> page = new CursorPage<>(new ArrayList<>(), pageable, totalGroups, null, null, took);
+            page.addFailedShards(failedShards);
+            return page;
+        }
+        List<String> ids = groups.stream().map(firstIdByGroup::get).collect(Collectors.toList());
+
+        //the first hits of the page with their highlight, and the versions of their groups
+        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
+            .setQuery(searchQuery)
+            .setPostFilter(QueryBuilders.idsQuery().ids(ids))//the versions are aggregated on all the hits of the groups
+            .setSize(ids.size())
+            .setFetchSource(null, "content")
+            .addAggregation(AggregationBuilders.terms("groups")
+                .field(field)
+                .include(groups.toArray(new String[groups.size()]))
+                .size(groups.size())
+                .subAggregation(AggregationBuilders.terms("versions").field("version.raw").size(0)));
+        QueryBuilder plainHighlightQuery = plainHighlightQuery(query);
+        if (addHighlight(searchRequestBuilder, plainHighlightQuery == null)) {
+            addHighlightQuery(searchRequestBuilder, query);
+        }
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        log.trace("<== Response ES <== \n{}", response);
+
+        Map<String, List<String>> versionsByGroup = new HashMap<>();
+        Terms groupTerms = response.getAggregations().get("groups");
+        for (Terms.Bucket bucket : groupTerms.getBuckets()) {
+            Terms versions = bucket.getAggregations().get("versions");
+            versionsByGroup.put(bucket.getKeyAsString(), versions.getBuckets().stream()
+                .map(Terms.Bucket::getKeyAsString)
+                .sorted()
+                .collect(Collectors.toList()));
+        }
+
+        AggregatedPage<File> mapped = highlightMapper().mapResults(response, File.class, pageable);
+        Map<String, File> fileById = new HashMap<>();
+        if (mapped != null) {
+            mapped.getContent().forEach(file -> fileById.put(file.getId(), file));
+        }
+        List<File> files = new ArrayList<>();
+        for (String group : groups) {
+            File file = fileById.get(firstIdByGroup.get(group));
+            if (file != null) {
+                file.setVersions(versionsByGroup.getOrDefault(group, Collections.singletonList(file.getVersion())));
+                files.add(file);
+            }
+        }
+        CursorPage<File> page = new CursorPage<>(files, pageable, totalGroups, null, null, took + response.getTookInMillis());
+        page.addFailedShards(Math.max(failedShards, response.getFailedShards()));
+        SearchResponse fragments = plainHighlightQuery != null ?
+            highlightPlain(response, page, "content", plainHighlightQuery) : response;
+        if (lines) {
+            addMatchingLines(fragments, page);
+        }
+        return page;
+    }
+
+    /**
+     * Return records which contain the code snippet phrase, with the punctuation kept by the content.code field.
+     * The content.code field has no offsets, the fragments are highlighted by the plain highlighter
+     *
+     * @param pageable
+     * @param phrase
+     * @param version
+     * @param project
+     * @param extension
+     * @param cursor the cursor of the previous page, null for a paging with from/size
+     * @param lines true to add the line numbers and the context lines of the fragments, which reads the content
+     *              of the files on the page
+     * @return
+     */
+    @Override
+    @Cacheable(cacheNames = Constants.SEARCH_CACHE,
+        key = "{@crawlerService.indexGeneration, 'phrase', #phrase, #version, #project, #extension, #pageable, #cursor, #lines}",
+        unless = "#result == null")
+    public CursorPage<File> customPhraseSearch(Pageable pageable, String phrase, List<String> version, List<String> project, List<String> extension, String cursor, boolean lines) {
+        SearchCacheMiss.mark();
+        if (StringUtils.isEmpty(phrase)) {
+            log.error("customPhraseSearch return null in case where phrase = {}", phrase);
+            return null;
+        }
+        NativeSearchQuery nativeSearchQuery = Queries.constructPhraseQueryBuilder(phrase).build();
+
+        List<Sort.Order> orders = resolveSortOrders(pageable, true);
+        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, orders, cursor, version, project, extension, false);
+        searchRequestBuilder.setFetchSource(null, "content");
+        addHighlight(searchRequestBuilder, false);
+
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        log.trace("<== Response ES <== \n{}", response);
+
+        ResultHighlightMapper mapper = highlightMapper();
+        CursorPage<File> page = toCursorPage(mapper.mapResults(response, File.class, pageable), response, pageable, orders, cursor);
+        //the code subfield has no offsets, and the phrase should be highlighted as a whole
+        SearchResponse fragments = highlightPlain(response, page, "content.code", nativeSearchQuery.getQuery());
+        if (lines) {
+            addMatchingLines(fragments, page);
+        }
+        return page;
+    }
+
+    /**
+     * Return records whose content matches the regex. The trigrams of the regex select the candidates
+     * on the content.trigram field, then the content of each candidate is verified with the regex.
+     * At most MAX_REGEX_CANDIDATES candidates are verified, the total only counts the verified ones
+     *
+     * @param pageable
+     * @param regex a java regular expression, a literal can be quoted with \\Q...\\E
+     * @param version
+     * @param project
+     * @param extension
+     * @return
+     * @throws IllegalArgumentException if the regex is not valid, has no literal of 3 characters, or takes more
+     *                                  than Constants.MAX_REGEX_VERIFY_MILLIS to verify the candidates
+     */
+    @Override
+    @Cacheable(cacheNames = Constants.SEARCH_CACHE,
+        key = "{@crawlerService.indexGeneration, 'regex', #regex, #version, #project, #extension, #pageable}",
+        unless = "#result == null")
+    public CursorPage<File> customRegexSearch(Pageable pageable, String regex, List<String> version, List<String> project, List<String> extension) {
+        SearchCacheMiss.mark();
+        if (StringUtils.isEmpty(regex)) {
+            log.error("customRegexSearch return null in case where regex = {}", regex);
+            return null;
+        }
+        Pattern pattern = Pattern.compile(regex, Pattern.MULTILINE);
+        List<Set<String>> branches = RegexTrigrams.extract(regex);
+        if (branches.isEmpty()) {
+            throw new IllegalArgumentException("the regex should contain a literal of at least 3 characters");
+        }
+
+        BoolQueryBuilder candidates = QueryBuilders.boolQuery().minimumNumberShouldMatch(1);
+        for (Set<String> trigrams : branches) {
+            BoolQueryBuilder branch = QueryBuilders.boolQuery();
+            trigrams.forEach(trigram -> branch.filter(QueryBuilders.termQuery("content.trigram", trigram)));
+            candidates.should(branch);
+        }
+
+        List<Sort.Order> orders = resolveSortOrders(pageable, false);
+        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
+            .setQuery(QueryBuilders.boolQuery()
+                .filter(candidates)
+                .filter(constructFilter(version, project, extension)))
+            .setScroll(SCROLL_KEEP_ALIVE)
+            .setSize(SCROLL_SIZE_WITH_CONTENT);
+        orders.forEach(order -> searchRequestBuilder.addSort(
+            new FieldSortBuilder(order.getProperty()).unmappedType("string").order(SortOrder.valueOf(order.getDirection().name()))));
+
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        ResultRegexMapper mapper = new ResultRegexMapper(pattern);
+        List<File> result = new ArrayList<>();
+        long verified = 0;
+        long matches = 0;
+        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        long took = response.getTookInMillis();
+        int failedShards = response.getFailedShards();
+        try {
+            //the candidates are verified in the order of the sort, to know which matches are in the page
+            while (response.getHits().getHits().length > 0 && verified < Constants.MAX_REGEX_CANDIDATES) {
+                for (SearchHit hit : response.getHits()) {
+                    if (verified++ >= Constants.MAX_REGEX_CANDIDATES) {
+                        break;
+                    }
+                    if (mapper.matches(hit)) {
+                        if (matches >= pageable.getOffset() && result.size() < pageable.getPageSize()) {
+                            result.add(mapper.mapResult(hit));
+                        }
+                        matches++;
+                    }
+                }
+                response = elasticsearchTemplate.getClient()
+                    .prepareSearchScroll(response.getScrollId())
+                    .setScroll(SCROLL_KEEP_ALIVE)
+                    .execute().actionGet();
+                took += response.getTookInMillis();
+            }
+        } finally {
+            elasticsearchTemplate.getClient().prepareClearScroll().addScrollId(response.getScrollId()).execute().actionGet();
+        }
+        if (verified >= Constants.MAX_REGEX_CANDIDATES) {
+            log.warn("regex search {} stopped after {} candidates", regex, verified);
+        }
+        CursorPage<File> page = new CursorPage<>(result, pageable, matches, null, null, took);
+        page.addFailedShards(failedShards);
+        return page;
+    }
+
+    @Override
+    public Map<String, Long> getFacetCounts(AggregatedPage<File> page, String field) {
+        return toFacetCounts(page.getAggregation("top_" + field));
+    }
+
     /**
      * Return all records, and truncate the content with the ResultTruncatedContentMapper
      *
      * @param pageable
      * @param version
      * @param project
+     * @param cursor the cursor of the previous page, null for a paging with from/size
      * @return
      */
     @Override
-    public Page<File> customfindAll(Pageable pageable, List<String> version, List<String> project, List<String> extension) {
+    public CursorPage<File> customfindAll(Pageable pageable, List<String> version, List<String> project, List<String> extension, String cursor) {
+        SearchCacheMiss.mark();
         NativeSearchQueryBuilder nativeSearchQueryBuilder = Queries.constructSearchQueryBuilder("");
         NativeSearchQuery nativeSearchQuery = nativeSearchQueryBuilder.build();
 
-        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, version, project, extension);
+        //all the documents have the same score, so the sort on _score is useless and would prevent the cursor
+        List<Sort.Order> orders = resolveSortOrders(pageable, false);
+        SearchRequestBuilder searchRequestBuilder = constructRequestBuilder(nativeSearchQuery, pageable, orders, cursor, version, project, extension, false);
 
         SearchResponse response = searchRequestBuilder.execute().actionGet();
 
         ResultTruncatedContentMapper mapper = new ResultTruncatedContentMapper();
-        return mapper.mapResults(response, File.class, nativeSearchQuery.getPageable());
+        return toCursorPage(mapper.mapResults(response, File.class, pageable), response, pageable, orders, cursor);
+    }
+
+    /**
+     * Run the search of customSearchWithFacets with the profiling of elasticsearch, to know where the time went :
+     * rewrite of the query (expansion of the wildcards), queries, aggregations of the facets. The highlight isn't
+     * profiled by elasticsearch, it's the difference of took between the search with and without highlight.
+     * Nothing is cached, the profiled request is the slowest because of the profiling itself
+     *
+     * @param pageable
+     * @param query
+     * @param version
+     * @param project
+     * @param extension
+     * @return the profile of the search
+     */
+    @Override
+    public SearchProfile profileSearch(Pageable pageable, String query, List<String> version, List<String> project, List<String> extension) {
+        NativeSearchQuery nativeSearchQuery = Queries.constructSearchQueryBuilder(query).build();
+        List<Sort.Order> orders = resolveSortOrders(pageable, true);
+
+        SearchRequestBuilder profiled = constructRequestBuilder(nativeSearchQuery, pageable, orders, null, version, project, extension, true)
+            .setFetchSource(null, "content")
+            .setProfile(true);
+        for (String field : FACET_FIELDS) {
+            profiled.addAggregation(constructTermsAggregation(field));
+        }
+        log.trace("==> Request  ES ==> \n{}", profiled);
+        SearchResponse response = profiled.execute().actionGet();
+        SearchProfile profile = new SearchProfile(query, response.getHits().getTotalHits(), response.getTookInMillis(), response.getFailedShards());
+        if (response.getProfileResults() != null) {
+            for (Map.Entry<String, List<ProfileShardResult>> shard : response.getProfileResults().entrySet()) {
+                for (ProfileShardResult result : shard.getValue()) {
+                    try {
+                        profile.addShard(shard.getKey(), result);
+                    } catch (IOException e) {
+                        log.warn("the profile of the shard {} can't be read", shard.getKey(), e);
+                    }
+                }
+            }
+        }
+
+        SearchRequestBuilder highlighted = constructRequestBuilder(nativeSearchQuery, pageable, orders, null, version, project, extension, true)
+            .setFetchSource(null, "content");
+        if (addHighlight(highlighted, plainHighlightQuery(query) == null)) {
+            addHighlightQuery(highlighted, query);
+            long withoutHighlight = constructRequestBuilder(nativeSearchQuery, pageable, orders, null, version, project, extension, true)
+                .setFetchSource(null, "content")
+                .execute().actionGet().getTookInMillis();
+            long withHighlight = highlighted.execute().actionGet().getTookInMillis();
+            profile.setHighlightTime(Math.max(0, withHighlight - withoutHighlight));
+        }
+        return profile;
     }
 
     @Override
@@ -122,19 +602,168 @@ public class CustomSearchRepositoryImpl implements CustomSearchRepository {
         return elasticsearchTemplate.queryForObject(stringQuery,File.class);
     }
 
+    /**
+     * Return the hit of the "id" file with its version, the content is not fetched
+     *
+     * @param id
+     * @param includes the fields of the _source to fetch
+     * @return the hit, or null if the file doesn't exist
+     */
+    @Override
+    public SearchHit findOneWithoutContent(String id, String... includes) {
+        SearchResponse response = this.templateResponse()
+            .setQuery(QueryBuilders.idsQuery().ids(id))
+            .setSize(1)
+            .setVersion(true)
+            .setFetchSource(includes, null)
+            .execute().actionGet();
+        SearchHit[] hits = response.getHits().getHits();
+        return hits.length == 0 ? null : hits[0];
+    }
+
+    /**
+     * Return the content of the "id" file encoded in UTF-8. The content is decoded from the _source bytes
+     * straight into the UTF-8 buffer, without a File nor a String in between
+     *
+     * @param id
+     * @return the content, or null if the file doesn't exist or has no content
+     * @throws IOException if the _source can't be parsed
+     */
+    @Override
+    public Resource findContent(String id) throws IOException {
+        SearchResponse response = this.templateResponse()
+            .setQuery(QueryBuilders.idsQuery().ids(id))
+            .setSize(1)
+            .setFetchSource("content", null)
+            .execute().actionGet();
+        SearchHit[] hits = response.getHits().getHits();
+        if (hits.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(hits[0].getSourceRef().streamInput())) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "content".equals(parser.getCurrentName())) {
+                    if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                        return null;
+                    }
+                    ContentBuffer buffer = new ContentBuffer();
+                    try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+                        parser.getText(writer);
+                    }
+                    return buffer.toResource(id);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the completions of the prefix on the suggest field (file names, path segments, projects and symbols).
+     * The completion suggester reads an in-memory FST, no document is fetched
+     *
+     * @param prefix
+     * @param size the max number of suggestions
+     * @return the distinct suggestions, the best weighted first
+     */
+    @Override
+    public List<String> suggest(String prefix, int size) {
+        CompletionSuggestionBuilder completion = new CompletionSuggestionBuilder(SUGGESTION_NAME)
+            .field("suggest")
+            .text(prefix)
+            .size(size);
+        SuggestResponse response = elasticsearchTemplate.getClient()
+            .prepareSuggest(Constants.ALIAS)
+            .addSuggestion(completion)
+            .execute().actionGet();
+
+        List<String> suggestions = new ArrayList<>();
+        Suggest.Suggestion<? extends Suggest.Suggestion.Entry<? extends Suggest.Suggestion.Entry.Option>> suggestion =
+            response.getSuggest().getSuggestion(SUGGESTION_NAME);
+        if (suggestion != null) {
+            suggestion.getEntries().forEach(entry ->
+                entry.getOptions().forEach(option -> suggestions.add(option.getText().string())));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Scroll through all the records for query and give each hit to the consumer, one batch in memory at a time.
+     * Only the path, project, version and size are fetched. If highlightContent is set, the whole content is
+     * returned in the highlight field "content" with the matching terms between SCROLL_PRE_TAG and SCROLL_POST_TAG
+     *
+     * @param query
+     * @param version
+     * @param project
+     * @param extension
+     * @param highlightContent
+     * @param consumer
+     */
+    @Override
+    public void scrollSearch(String query, List<String> version, List<String> project, List<String> extension, boolean highlightContent, Consumer<SearchHit> consumer) {
+        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
+            .setQuery(QueryBuilders.boolQuery()
+                .must(Queries.constructQuery(query))
+                .filter(constructFilter(version, project, extension)))
+            .setScroll(SCROLL_KEEP_ALIVE)
+            .setSize(highlightContent ? SCROLL_SIZE_WITH_CONTENT : SCROLL_SIZE)
+            .addSort(SortBuilders.fieldSort("_doc"))//the cheapest order for a scroll
+            .setFetchSource(new String[]{"path", "project", "version", "size"}, null);
+        if (highlightContent) {
+            searchRequestBuilder
+                .addHighlightedField(new HighlightBuilder.Field("content").numOfFragments(0))
+                .setHighlighterPreTags(SCROLL_PRE_TAG)
+                .setHighlighterPostTags(SCROLL_POST_TAG);
+        }
+
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        try {
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits()) {
+                    consumer.accept(hit);
+                }
+                response = elasticsearchTemplate.getClient()
+                    .prepareSearchScroll(response.getScrollId())
+                    .setScroll(SCROLL_KEEP_ALIVE)
+                    .execute().actionGet();
+            }
+        } finally {
+            //the consumer may fail (client disconnected), free the scroll context anyway
+            elasticsearchTemplate.getClient().prepareClearScroll().addScrollId(response.getScrollId()).execute().actionGet();
+        }
+    }
+
     @Override
     public Map<String, Long> aggregateByRawField(String field, String filtre) {
 
-        TermsBuilder aggregation = AggregationBuilders.terms("top_" + field)
+        SearchResponse response = createResponseForAggregate(filtre, constructTermsAggregation(field));
+
+        Map<String, Aggregation> results = response.getAggregations().asMap();
+        return toFacetCounts(results.get("top_" + field));
+    }
+
+    /**
+     * construct the terms aggregation "top_" + field on the raw field
+     *
+     * @param field
+     * @return
+     */
+    private TermsBuilder constructTermsAggregation(String field) {
+        return AggregationBuilders.terms("top_" + field)
             .field(field + ".raw")
             .size(0)// le résultat n'est pas complet si on ne précise pas la taille, 0 : infini
             // (voir : https://www.elastic.co/guide/en/elasticsearch/reference/current/search-aggregations-bucket-terms-aggregation.html#_size)
             .order(Terms.Order.aggregation("_count", false));
+    }
 
-        SearchResponse response = createResponseForAggregate(filtre, aggregation);
-
-        Map<String, Aggregation> results = response.getAggregations().asMap();
-        Aggregation topFieldTerms = results.get("top_" + field);
+    /**
+     * convert a terms aggregation in a map of document counts by term
+     *
+     * @param topFieldTerms
+     * @return
+     */
+    private Map<String, Long> toFacetCounts(Aggregation topFieldTerms) {
         if (!(topFieldTerms instanceof StringTerms)) {
             return new LinkedHashMap<>();
         }
@@ -160,12 +789,249 @@ public class CustomSearchRepositoryImpl implements CustomSearchRepository {
      *
      * @param pageable
      * @param nativeSearchQuery
+     * @param orders the sort resolved by resolveSortOrders
+     * @param cursor the cursor of the previous page, may be null
      * @param version
      * @param project
+     * @param postFilter true if the filters should not restrict the aggregations. Otherwise they are in the query,
+     *                   as constant score filters which skip the documents before they are scored
      * @return
+     * @throws IllegalArgumentException if the cursor is not valid or can't be used with the sort
+     */
+    private SearchRequestBuilder constructRequestBuilder(NativeSearchQuery nativeSearchQuery, Pageable pageable, List<Sort.Order> orders, String cursor, List<String> version, List<String> project, List<String> extension, boolean postFilter) {
+
+        BoolQueryBuilder filter = constructFilter(version, project, extension);
+        if (cursor != null) {
+            if (!isCursorSortable(orders)) {
+                throw new IllegalArgumentException("a cursor can't be used with a sort on the score");
+            }
+            filter = filter.must(SearchCursor.searchAfter(orders, SearchCursor.decode(cursor).getSortValues()));
+        }
+
+        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
+            .setTrackScores(true);
+        if (postFilter) {
+            searchRequestBuilder.setQuery(nativeSearchQuery.getQuery()).setPostFilter(filter);
+        } else {
+            searchRequestBuilder.setQuery(QueryBuilders.boolQuery().must(nativeSearchQuery.getQuery()).filter(filter));
+        }
+
+        //searchRequestBuilder.addSort(nativeSearchQuery.getElasticsearchSorts().stream().findFirst().get());
+
+        //add the sort order to searchRequestBuilder
+        addPagingAndSortingToSearchRequest(pageable, orders, cursor != null, searchRequestBuilder);
+
+
+        return searchRequestBuilder;
+    }
+
+    /**
+     * add the highlight of the content and the path to the request, with the highlighter configured in
+     * klask.search.highlight. The postings highlighter reads the offsets stored in the index, without
+     * term vectors and without analyzing the content again
+     *
+     * @param searchRequestBuilder
+     * @param withContent false if the content is highlighted by highlightPlain, only the path is then highlighted
+     * @return false if the highlight is disabled by the configuration
+     */
+    private boolean addHighlight(SearchRequestBuilder searchRequestBuilder, boolean withContent) {
+        KlaskProperties.HighlightProperties highlight = klaskProperties.getSearch().getHighlight();
+        if (!highlight.isEnabled()) {
+            return false;
+        }
+        searchRequestBuilder
+            .setHighlighterEncoder("html")//permet d'échapper tous les caractères html pour une sortie correcte sur le frontend
+            .setHighlighterFragmentSize(highlight.getFragmentSize())
+            .setHighlighterNumOfFragments(highlight.getNumberOfFragments())
+            .setHighlighterPreTags("<mark>")
+            .setHighlighterPostTags("</mark>")
+            .setHighlighterRequireFieldMatch(true)//the terms of the filters on the other fields are not highlighted
+            .addHighlightedField("path")
+            .setHighlighterType(highlight.getType());
+        if (withContent) {
+            searchRequestBuilder.addHighlightedField("content");//on souhaite la coloration Highligh sur le contenu et le path à l'affichage
+        }
+        return true;
+    }
+
+    /**
+     * @param query
+     * @return the query to highlight the content with the plain highlighter : the wildcards of a "def:" symbol, or
+     * the leading wildcards searched on the trigrams. null if the content is highlighted by the main request
+     */
+    private QueryBuilder plainHighlightQuery(String query) {
+        if (Queries.isDefinitionQuery(query)) {
+            return Queries.isWildcardDefinitionQuery(query) ? Queries.constructDefinitionHighlightQuery(query) : null;
+        }
+        return Queries.isTrigramQuery(query) ? Queries.constructWildcardHighlightQuery(query) : null;
+    }
+
+    /**
+     * highlight the content of the hits of a page with the plain highlighter, which analyzes the whole content of
+     * each hit again. The highlight is made in a second request, only for the hits not bigger than
+     * klask.search.highlight.maxPlainSize, the bigger files are returned without fragments
+     *
+     * @param response the response of the page, with the size of each hit
+     * @param page the files mapped from the response, their content is replaced by the fragments
+     * @param field the field to highlight, content or content.code
+     * @param highlightQuery the terms to highlight
+     * @return the response with the fragments of the content, or the response of the page if nothing was highlighted
+     */
+    private SearchResponse highlightPlain(SearchResponse response, CursorPage<File> page, String field, QueryBuilder highlightQuery) {
+        KlaskProperties.HighlightProperties highlight = klaskProperties.getSearch().getHighlight();
+        if (!highlight.isEnabled()) {
+            return response;
+        }
+        List<String> ids = new ArrayList<>();
+        for (SearchHit hit : response.getHits()) {
+            Object size = hit.getSource().get("size");
+            if (size != null && Long.parseLong(size.toString()) <= highlight.getMaxPlainSize()) {
+                ids.add(hit.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return response;
+        }
+
+        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
+            .setQuery(QueryBuilders.idsQuery().ids(ids))
+            .setSize(ids.size())
+            .setFetchSource("size", null)
+            .setHighlighterEncoder("html")
+            .setHighlighterFragmentSize(highlight.getFragmentSize())
+            .setHighlighterNumOfFragments(highlight.getNumberOfFragments())
+            .setHighlighterPreTags("<mark>")
+            .setHighlighterPostTags("</mark>")
+            .setHighlighterRequireFieldMatch(true)
+            .setHighlighterType("plain")
+            .setHighlighterQuery(highlightQuery)
+            .addHighlightedField(field);
+        log.trace("==> Request  ES ==> \n{}", searchRequestBuilder);
+        SearchResponse fragments = searchRequestBuilder.execute().actionGet();
+        page.addTook(fragments.getTookInMillis());
+
+        ResultHighlightMapper mapper = highlightMapper();
+        Map<String, String> summaryById = new HashMap<>();
+        for (SearchHit hit : fragments.getHits()) {
+            String summary = mapper.summary(hit);
+            if (summary != null) {
+                summaryById.put(hit.getId(), summary);
+            }
+        }
+        for (File file : page.getContent()) {
+            String summary = summaryById.get(file.getId());
+            if (summary != null) {
+                file.setContent(summary);
+            }
+        }
+        return fragments;
+    }
+
+    /**
+     * highlight the queries which don't search the content itself : the symbol of a "def:" query, or the leading
+     * wildcards searched on the trigrams. These are highlighted by the plain highlighter, which expands the
+     * wildcards on the terms of each hit only
+     *
+     * @param searchRequestBuilder a request with the highlight
+     * @param query
+     */
+    private void addHighlightQuery(SearchRequestBuilder searchRequestBuilder, String query) {
+        if (Queries.isDefinitionQuery(query)) {
+            searchRequestBuilder.setHighlighterQuery(Queries.constructDefinitionHighlightQuery(query));
+            if (Queries.isWildcardDefinitionQuery(query)) {
+                searchRequestBuilder.setHighlighterType("plain");
+            }
+        } else if (Queries.isTrigramQuery(query)) {
+            searchRequestBuilder
+                .setHighlighterQuery(Queries.constructWildcardHighlightQuery(query))
+                .setHighlighterType("plain");
+        }
+    }
+
+    /**
+     * add the line numbers and the context lines of the highlighted fragments to the files of the page.
+     * The content of the files is read in one request, only for the files smaller than klask.search.lines.maxFileSize,
+     * and in the order of the page until klask.search.lines.maxPageBytes are read
+     *
+     * @param response the response with the highlight fragments
+     * @param page the files mapped from the response
+     */
+    private void addMatchingLines(SearchResponse response, CursorPage<File> page) {
+        KlaskProperties.LinesProperties linesProperties = klaskProperties.getSearch().getLines();
+        if (!linesProperties.isEnabled() || page.getContent().isEmpty()) {
+            return;
+        }
+        //the fragments may come from a second request, whose hits aren't in the order of the page
+        Map<String, SearchHit> hitsById = new HashMap<>();
+        for (SearchHit hit : response.getHits()) {
+            hitsById.put(hit.getId(), hit);
+        }
+        Map<String, List<String>> fragmentsById = new LinkedHashMap<>();
+        long pageBytes = 0;
+        for (File file : page.getContent()) {
+            SearchHit hit = hitsById.get(file.getId());
+            if (hit == null) {
+                continue;
+            }
+            HighlightField field = hit.getHighlightFields().get("content.code");
+            if (field == null) {
+                field = hit.getHighlightFields().get("content");
+            }
+            Object size = hit.getSource().get("size");
+            if (field == null || field.fragments() == null || size == null) {
+                continue;
+            }
+            long fileSize = Long.parseLong(size.toString());
+            if (fileSize > linesProperties.getMaxFileSize()) {
+                continue;
+            }
+            if (pageBytes + fileSize > linesProperties.getMaxPageBytes()) {
+                break;
+            }
+            pageBytes += fileSize;
+            fragmentsById.put(hit.getId(), Arrays.stream(field.fragments()).map(Text::string).collect(Collectors.toList()));
+        }
+        if (fragmentsById.isEmpty()) {
+            return;
+        }
+
+        SearchResponse contents = this.templateResponse()
+            .setQuery(QueryBuilders.idsQuery().ids(fragmentsById.keySet()))
+            .setSize(fragmentsById.size())
+            .setFetchSource("content", null)
+            .execute().actionGet();
+        page.addTook(contents.getTookInMillis());
+        Map<String, String> contentById = new HashMap<>();
+        for (SearchHit hit : contents.getHits()) {
+            contentById.put(hit.getId(), (String) hit.getSource().get("content"));
+        }
+
+        MatchingLinesMapper linesMapper = new MatchingLinesMapper(linesProperties.getContext(), linesProperties.getMaxMatchingLines());
+        for (File file : page.getContent()) {
+            String content = contentById.get(file.getId());
+            if (content != null) {
+                file.setLines(linesMapper.mapLines(content, fragmentsById.get(file.getId())));
+            }
+        }
+    }
+
+    /**
+     * the mapper of the highlighted results, which trims the fragments to the configured size
+     * (the postings highlighter returns whole sentences)
      */
-    private SearchRequestBuilder constructRequestBuilder(NativeSearchQuery nativeSearchQuery, Pageable pageable, List<String> version, List<String> project, List<String> extension) {
+    private ResultHighlightMapper highlightMapper() {
+        return new ResultHighlightMapper(klaskProperties.getSearch().getHighlight().getFragmentSize());
+    }
 
+    /**
+     * construct the filter on the versions, projects and extensions selected by the user
+     *
+     * @param version
+     * @param project
+     * @param extension
+     * @return
+     */
+    private BoolQueryBuilder constructFilter(List<String> version, List<String> project, List<String> extension) {
         BoolQueryBuilder ensembleVersion = QueryBuilders.boolQuery();
         BoolQueryBuilder ensembleProjet = QueryBuilders.boolQuery();
         BoolQueryBuilder ensembleExtension = QueryBuilders.boolQuery();
@@ -183,65 +1049,114 @@ public class CustomSearchRepositoryImpl implements CustomSearchRepository {
             ensembleExtension = ensembleExtension.should(QueryBuilders.termsQuery("extension.raw", extension));
             filter = filter.must(ensembleExtension);
         }
-
-        SearchRequestBuilder searchRequestBuilder = this.templateResponse()
-            .setQuery(nativeSearchQuery.getQuery())
-            .setHighlighterEncoder("html")//permet d'échapper tous les caractères html pour une sortie correcte sur le frontend
-            .setHighlighterFragmentSize(100)
-            .setHighlighterNumOfFragments(3)
-            .setHighlighterPreTags("<mark>")
-            .setHighlighterPostTags("</mark>")
-            .addHighlightedField("content")//on souhaite la coloration Highligh sur le contenu et le path à l'affichage
-            .addHighlightedField("path")
-            .setHighlighterBoundaryChars(new char[]{'\n'})
-            .setHighlighterBoundaryMaxScan(200)
-            .setHighlighterType("fvh")
-            .setTrackScores(true)
-            .setPostFilter(filter);
-
-        //searchRequestBuilder.addSort(nativeSearchQuery.getElasticsearchSorts().stream().findFirst().get());
-
-        //add the sort order to searchRequestBuilder
-        addPagingAndSortingToSearchRequest(pageable, searchRequestBuilder);
-
-
-        return searchRequestBuilder;
+        return filter;
     }
 
     /**
-     * add the sort order to the request searchRequestBuilder
+     * resolve the sort of the pageable on the elasticsearch fields.
      * if the frontend send sort with "path : desc". It should be converted to "path.raw" : {"order" : "desc" }
      * https://www.elastic.co/guide/en/elasticsearch/guide/current/multi-fields.html#multi-fields
+     * The id is added at the end as tiebreaker, so the order is total and can be used by a cursor
+     *
+     * @param pageable
+     * @param scored false if all the documents have the same score, the sort on _score is then removed
+     * @return the sort orders, empty if there is no pageable
+     */
+    private List<Sort.Order> resolveSortOrders(Pageable pageable, boolean scored) {
+        List<Sort.Order> orders = new ArrayList<>();
+        if (pageable == null) {
+            return orders;
+        }
+        boolean withId = false;
+        if (pageable.getSort() != null) {
+            for (Sort.Order order : pageable.getSort()) {
+                String field = Constants.ORDER_FIELD_MAPPING.get(order.getProperty());
+                if ("_score".equals(field) && !scored) {
+                    continue;
+                }
+                withId |= "id".equals(field);
+                orders.add(new Sort.Order(order.getDirection(), field));
+            }
+        }
+        if (!withId) {
+            orders.add(new Sort.Order(Sort.Direction.ASC, "id"));
+        }
+        return orders;
+    }
+
+    /**
+     * the cursor emulates search_after with range filters, which is not possible on the score
+     *
+     * @param orders
+     * @return
+     */
+    private boolean isCursorSortable(List<Sort.Order> orders) {
+        return !orders.isEmpty() && orders.stream().noneMatch(order -> "_score".equals(order.getProperty()));
+    }
+
+    /**
+     * add the paging and the sort order to the request searchRequestBuilder
      *
      * @param pageable
+     * @param orders the sort resolved by resolveSortOrders
+     * @param withCursor true if the cursor filter already skips the previous pages
      * @param searchRequestBuilder
      */
-    private void addPagingAndSortingToSearchRequest(Pageable pageable, SearchRequestBuilder searchRequestBuilder) {
+    private void addPagingAndSortingToSearchRequest(Pageable pageable, List<Sort.Order> orders, boolean withCursor, SearchRequestBuilder searchRequestBuilder) {
         //par défaut, renvoi la première page trié sur le _score ou le _doc, si rien n'est spécifié
         //effectue le tri
         if (pageable != null) {
 
             searchRequestBuilder
-                .setFrom(pageable.getOffset())
+                .setFrom(withCursor ? 0 : pageable.getOffset())
                 .setSize(pageable.getPageSize());
 
-            if (pageable.getSort() != null) {
-                pageable.getSort().forEach(
-                    order -> {
-                        SortBuilder sb;
-                        //cas particulier si on a l'id en filtre, il doit être unmappedType pour éviter l'erreur du
-                        // "all shards failed : No mapping found for [id] in order to sort on"
-                        if("id".equals(order.getProperty())) {
-                            sb = new FieldSortBuilder("id").unmappedType("string").order(SortOrder.valueOf(order.getDirection().name()));
-                        } else {
-                            sb = new FieldSortBuilder(Constants.ORDER_FIELD_MAPPING.get(order.getProperty()))
-                                .order(SortOrder.valueOf(order.getDirection().name()));
-                        }
-                            searchRequestBuilder.addSort(sb);
+            orders.forEach(
+                order -> {
+                    SortBuilder sb;
+                    //cas particulier si on a l'id en filtre, il doit être unmappedType pour éviter l'erreur du
+                    // "all shards failed : No mapping found for [id] in order to sort on"
+                    if ("id".equals(order.getProperty())) {
+                        sb = new FieldSortBuilder("id").unmappedType("string").order(SortOrder.valueOf(order.getDirection().name()));
+                    } else {
+                        sb = new FieldSortBuilder(order.getProperty())
+                            .order(SortOrder.valueOf(order.getDirection().name()));
                     }
-                );
-            }
+                    searchRequestBuilder.addSort(sb);
+                }
+            );
+        }
+    }
+
+    /**
+     * add the cursor of the next page to the mapped page
+     * with a cursor, the hits only count the documents after the cursor, the hits seen before the cursor are added
+     * to the total, and give the number of the page whatever the page sent with the cursor
+     *
+     * @param page the page returned by the mapper
+     * @param response
+     * @param pageable
+     * @param orders the sort resolved by resolveSortOrders
+     * @param cursor the cursor which filtered the request, null for a paging with from/size
+     * @return
+     */
+    private CursorPage<File> toCursorPage(AggregatedPage<File> page, SearchResponse response, Pageable pageable, List<Sort.Order> orders, String cursor) {
+        SearchHit[] hits = response.getHits().getHits();
+        long seen = pageable.getOffset();
+        long total = response.getHits().getTotalHits();
+        if (cursor != null) {
+            seen = SearchCursor.decode(cursor).getSeen();
+            total += seen;
+            pageable = new PageRequest((int) (seen / pageable.getPageSize()), pageable.getPageSize(), pageable.getSort());
+        }
+        String nextCursor = null;
+        if (isCursorSortable(orders) && hits.length > 0 && hits.length == pageable.getPageSize()) {
+            nextCursor = SearchCursor.encode(hits[hits.length - 1].getSortValues(), seen + hits.length);
         }
+        CursorPage<File> cursorPage = new CursorPage<>(page.getContent(), pageable, total, response.getAggregations(), nextCursor, response.getTookInMillis());
+        cursorPage.setTerminatedEarly(Boolean.TRUE.equals(response.isTerminatedEarly()));
+        cursorPage.addFailedShards(response.getFailedShards());
+        return cursorPage;
     }
 
 
@@ -282,4 +1197,33 @@ public class CustomSearchRepositoryImpl implements CustomSearchRepository {
             //.setTypes(RepositoryType.getAllTypes())
             ;//SVN, GIT, FILE_SYSTEM
     }
+
+    /**
+     * UTF-8 content exposed as a Resource over its own buffer, without the copy of toByteArray
+     */
+    private static class ContentBuffer extends ByteArrayOutputStream {
+
+        private ContentBuffer() {
+            super(8192);
+        }
+
+        private Resource toResource(String id) {
+            return new AbstractResource() {
+                @Override
+                public String getDescription() {
+                    return "content of the file " + id;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(buf, 0, count);
+                }
+
+                @Override
+                public long contentLength() {
+                    return count;
+                }
+            };
+        }
+    }
 }
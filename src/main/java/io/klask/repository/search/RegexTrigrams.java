@@ -0,0 +1,339 @@
+package io.klask.repository.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decompose a java regular expression in the trigrams that a matching text must contain.
+ * <p>
+ * The regex is split on its top level alternations. For each branch, the literal runs which are mandatory
+ * (not in a group, a character class, or followed by an optional quantifier) are cut in lowercase trigrams.
+ * A text can match the regex only if it contains all the trigrams of at least one branch, so the trigrams
+ * select the candidates and the regex verifies them.
+ * </p>
+ * The decomposition is conservative : everything which is not understood breaks the current literal run.
+ */
+public final class RegexTrigrams {
+
+    private static final int GRAM_SIZE = 3;
+
+    private RegexTrigrams() {
+    }
+
+    /**
+     * @param regex
+     * @return the trigrams of each branch of the regex, or an empty list if one branch has no literal run
+     * of at least 3 characters (the regex can match any text, there is no candidate selection possible)
+     */
+    public static List<Set<String>> extract(String regex) {
+        List<Set<String>> branches = new ArrayList<>();
+        for (String branch : splitTopLevelAlternation(regex)) {
+            Set<String> trigrams = new LinkedHashSet<>();
+            for (String literal : mandatoryLiterals(branch)) {
+                String lower = literal.toLowerCase(Locale.ROOT);
+                for (int i = 0; i + GRAM_SIZE <= lower.length(); i++) {
+                    trigrams.add(lower.substring(i, i + GRAM_SIZE));
+                }
+            }
+            if (trigrams.isEmpty()) {
+                return Collections.emptyList();
+            }
+            branches.add(trigrams);
+        }
+        return branches;
+    }
+
+    private static List<String> splitTopLevelAlternation(String regex) {
+        List<String> branches = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipEscape(regex, i);
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                branches.add(regex.substring(start, i));
+                start = i + 1;
+            }
+            i++;
+        }
+        branches.add(regex.substring(start));
+        return branches;
+    }
+
+    private static List<String> mandatoryLiterals(String branch) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < branch.length()) {
+            char c = branch.charAt(i);
+            int next;
+            Character literal = null;
+            if (c == '\\') {
+                if (i + 1 < branch.length() && branch.charAt(i + 1) == 'Q') {
+                    //quoted block, all the characters are literals
+                    int end = branch.indexOf("\\E", i + 2);
+                    end = end < 0 ? branch.length() : end;
+                    current.append(branch, i + 2, end);
+                    i = Math.min(branch.length(), end + 2);
+                    continue;
+                }
+                Escape escape = Escape.parse(branch, i);
+                literal = escape.literal;
+                next = escape.end;
+            } else if (c == '[') {
+                next = skipCharacterClass(branch, i);
+            } else if (c == '(') {
+                next = skipGroup(branch, i);
+            } else if (".^$)|".indexOf(c) >= 0) {
+                next = i + 1;
+            } else if ("*+?{".indexOf(c) >= 0) {
+                //quantifier without a literal before (already handled), ignore it
+                next = skipQuantifier(branch, i);
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+
+            if (literal == null) {
+                flush(current, literals);
+                i = next < branch.length() && isQuantifier(branch.charAt(next)) ? skipQuantifier(branch, next) : next;
+                continue;
+            }
+            if (next < branch.length() && isQuantifier(branch.charAt(next))) {
+                if (isOptionalQuantifier(branch, next)) {
+                    //the character may be absent, the run before it is complete
+                    flush(current, literals);
+                } else {
+                    //the character is present at least once, but the run can't continue after it
+                    current.append(literal);
+                    flush(current, literals);
+                }
+                i = skipQuantifier(branch, next);
+            } else {
+                current.append(literal);
+                i = next;
+            }
+        }
+        flush(current, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder current, List<String> literals) {
+        if (current.length() >= GRAM_SIZE) {
+            literals.add(current.toString());
+        }
+        current.setLength(0);
+    }
+
+    private static int skipEscape(String regex, int i) {
+        return Escape.parse(regex, i).end;
+    }
+
+    private static int skipCharacterClass(String regex, int i) {
+        int depth = 0;
+        int j = i;
+        while (j < regex.length()) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                j += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                //a ] just after [ or [^ is a literal
+                if (j + 1 < regex.length() && regex.charAt(j + 1) == '^') {
+                    j++;
+                }
+                if (j + 1 < regex.length() && regex.charAt(j + 1) == ']') {
+                    j++;
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return j + 1;
+                }
+            }
+            j++;
+        }
+        return regex.length();
+    }
+
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        int j = i;
+        while (j < regex.length()) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                j = skipEscape(regex, j);
+                continue;
+            }
+            if (c == '[') {
+                j = skipCharacterClass(regex, j);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return j + 1;
+                }
+            }
+            j++;
+        }
+        return regex.length();
+    }
+
+    private static boolean isQuantifier(char c) {
+        return c == '*' || c == '+' || c == '?' || c == '{';
+    }
+
+    private static boolean isOptionalQuantifier(String regex, int i) {
+        char c = regex.charAt(i);
+        return c == '*' || c == '?' || (c == '{' && i + 1 < regex.length() && regex.charAt(i + 1) == '0');
+    }
+
+    private static int skipQuantifier(String regex, int i) {
+        int j = i;
+        if (regex.charAt(j) == '{') {
+            int end = regex.indexOf('}', j);
+            j = end < 0 ? regex.length() : end + 1;
+        } else {
+            j++;
+        }
+        //lazy or possessive quantifier
+        if (j < regex.length() && (regex.charAt(j) == '?' || regex.charAt(j) == '+')) {
+            j++;
+        }
+        return j;
+    }
+
+    /**
+     * an escape sequence of the regex, parsed whole : a hex, octal or control digit is never read as a literal
+     */
+    private static final class Escape {
+
+        //end of the sequence, excluded
+        private final int end;
+
+        //the character matched, null if the sequence is not a single character (\d, \p{..}, back reference...)
+        private final Character literal;
+
+        private Escape(int end, Character literal) {
+            this.end = end;
+            this.literal = literal;
+        }
+
+        /**
+         * @param regex a valid regex
+         * @param i the position of the backslash
+         */
+        private static Escape parse(String regex, int i) {
+            if (i + 1 >= regex.length()) {
+                return new Escape(regex.length(), null);
+            }
+            char escaped = regex.charAt(i + 1);
+            switch (escaped) {
+                case 't':
+                    return new Escape(i + 2, '\t');
+                case 'n':
+                    return new Escape(i + 2, '\n');
+                case 'r':
+                    return new Escape(i + 2, '\r');
+                case 'f':
+                    return new Escape(i + 2, '\f');
+                case 'a':
+                    return new Escape(i + 2, '\u0007');
+                case 'e':
+                    return new Escape(i + 2, '\u001B');
+                case 'c':
+                    //\cA is the control character of A
+                    return i + 2 < regex.length() ? new Escape(i + 3, (char) (regex.charAt(i + 2) ^ 64)) : new Escape(regex.length(), null);
+                case 'x':
+                    if (i + 2 < regex.length() && regex.charAt(i + 2) == '{') {
+                        int close = regex.indexOf('}', i + 3);
+                        return close < 0 ? new Escape(regex.length(), null) : new Escape(close + 1, codePoint(regex, i + 3, close));
+                    }
+                    return hex(regex, i + 2, 2);
+                case 'u':
+                    return hex(regex, i + 2, 4);
+                case '0':
+                    return octal(regex, i + 2);
+                case 'p':
+                case 'P':
+                    //\p{Lower} or \pL
+                    if (i + 2 < regex.length() && regex.charAt(i + 2) == '{') {
+                        int close = regex.indexOf('}', i + 3);
+                        return new Escape(close < 0 ? regex.length() : close + 1, null);
+                    }
+                    return new Escape(Math.min(regex.length(), i + 3), null);
+                case 'k':
+                    //\k<name>
+                    int close = regex.indexOf('>', i + 2);
+                    return new Escape(close < 0 ? regex.length() : close + 1, null);
+                default:
+                    if (escaped >= '1' && escaped <= '9') {
+                        //back reference, with all its digits
+                        int end = i + 2;
+                        while (end < regex.length() && Character.isDigit(regex.charAt(end))) {
+                            end++;
+                        }
+                        return new Escape(end, null);
+                    }
+                    if (Character.isLetterOrDigit(escaped)) {
+                        //\d, \w, \b, \s, \R...
+                        return new Escape(i + 2, null);
+                    }
+                    return new Escape(i + 2, escaped);
+            }
+        }
+
+        private static Escape hex(String regex, int start, int digits) {
+            int end = Math.min(regex.length(), start + digits);
+            return new Escape(end, codePoint(regex, start, end));
+        }
+
+        /**
+         * \0n, \0nn or \0mnn with m <= 3
+         */
+        private static Escape octal(String regex, int start) {
+            int end = start;
+            int max = start < regex.length() && regex.charAt(start) <= '3' ? 3 : 2;
+            while (end < regex.length() && end - start < max && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                end++;
+            }
+            if (end == start) {
+                return new Escape(end, null);
+            }
+            return new Escape(end, (char) Integer.parseInt(regex.substring(start, end), 8));
+        }
+
+        /**
+         * @return the character of the hex code point, null if it's not a valid char of the BMP
+         */
+        private static Character codePoint(String regex, int start, int end) {
+            try {
+                int codePoint = Integer.parseInt(regex.substring(start, end), 16);
+                return Character.isBmpCodePoint(codePoint) ? (char) codePoint : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
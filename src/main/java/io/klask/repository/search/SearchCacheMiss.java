@@ -0,0 +1,37 @@
+package io.klask.repository.search;
+
+/**
+ * Records on the current thread if a search was executed in elasticsearch. The body of a cached search method
+ * is not entered on a cache hit, so a search without a miss was served by the search cache, and the cached
+ * pages themselves are never modified.
+ */
+public final class SearchCacheMiss {
+
+    private static final ThreadLocal<Boolean> MISS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private SearchCacheMiss() {
+    }
+
+    /**
+     * forget the previous search of the thread, before calling the repository
+     */
+    public static void reset() {
+        MISS.remove();
+    }
+
+    /**
+     * called by the body of each search method, which is skipped on a cache hit
+     */
+    static void mark() {
+        MISS.set(Boolean.TRUE);
+    }
+
+    /**
+     * @return true if a search was executed in elasticsearch since the last reset
+     */
+    public static boolean consume() {
+        boolean miss = MISS.get();
+        MISS.remove();
+        return miss;
+    }
+}
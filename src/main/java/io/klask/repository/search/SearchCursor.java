@@ -0,0 +1,158 @@
+package io.klask.repository.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opaque cursor for the deep pagination.
+ * <p>
+ * Elasticsearch 2.4 has no search_after, so it is emulated : the cursor contains the sort values of the last hit
+ * of a page, and the next page is filtered on the documents which come after these values in the sort order.
+ * The sort always ends with the unique id, so the order is total and a page costs the same as the first one.
+ * The cursor also contains the number of hits before the next page, so the total and the page number don't
+ * depend on the page sent by the client with the cursor.
+ * </p>
+ */
+public final class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Object[] sortValues;
+
+    private final long seen;
+
+    private SearchCursor(Object[] sortValues, long seen) {
+        this.sortValues = sortValues;
+        this.seen = seen;
+    }
+
+    /**
+     * @return the sort values of the last hit of the previous page
+     */
+    public Object[] getSortValues() {
+        return sortValues;
+    }
+
+    /**
+     * @return the number of hits of the previous pages
+     */
+    public long getSeen() {
+        return seen;
+    }
+
+    /**
+     * encode the sort values of a hit in a cursor
+     *
+     * @param sortValues the sort values returned by elasticsearch
+     * @param seen the number of hits up to this one
+     * @return the cursor, url safe
+     */
+    public static String encode(Object[] sortValues, long seen) {
+        Object[] values = new Object[sortValues.length];
+        for (int i = 0; i < sortValues.length; i++) {
+            //the string values are returned as Text by elasticsearch
+            Object value = sortValues[i];
+            values[i] = value == null || value instanceof Number ? value : value.toString();
+        }
+        Map<String, Object> cursor = new LinkedHashMap<>();
+        cursor.put("seen", seen);
+        cursor.put("after", values);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(cursor));
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to encode the sort values", e);
+        }
+    }
+
+    /**
+     * decode a cursor created by {@link #encode(Object[], long)}
+     *
+     * @param cursor
+     * @return the sort values and the number of hits before the next page
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static SearchCursor decode(String cursor) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor : " + cursor, e);
+        }
+        if (node == null || !node.path("seen").canConvertToLong() || node.path("seen").asLong() < 0 || !node.path("after").isArray()) {
+            throw new IllegalArgumentException("invalid cursor : " + cursor);
+        }
+        return new SearchCursor(MAPPER.convertValue(node.get("after"), Object[].class), node.get("seen").asLong());
+    }
+
+    /**
+     * construct the filter which keeps the documents after the sort values, for the sort on the fields.
+     * For each field, a document comes after if all the previous fields are equal and this one is after :
+     * (f1 > v1) or (f1 = v1 and f2 > v2) or ...
+     * The missing values are sorted last, like the default of elasticsearch.
+     *
+     * @param orders the sort, with the elasticsearch field names
+     * @param sortValues the values decoded from the cursor
+     * @return the filter
+     * @throws IllegalArgumentException if the number of values doesn't match the sort
+     */
+    public static QueryBuilder searchAfter(List<Sort.Order> orders, Object[] sortValues) {
+        if (orders.size() != sortValues.length) {
+            throw new IllegalArgumentException("the cursor doesn't match the sort " + orders);
+        }
+        BoolQueryBuilder after = QueryBuilders.boolQuery();
+        for (int i = 0; i < orders.size(); i++) {
+            Object value = missingAsNull(sortValues[i]);
+            if (value == null) {
+                //nothing is after a missing value for this field
+                continue;
+            }
+            BoolQueryBuilder clause = QueryBuilders.boolQuery();
+            for (int j = 0; j < i; j++) {
+                clause.filter(equalTo(orders.get(j).getProperty(), missingAsNull(sortValues[j])));
+            }
+            String field = orders.get(i).getProperty();
+            RangeQueryBuilder range = QueryBuilders.rangeQuery(field);
+            if (orders.get(i).isAscending()) {
+                range.gt(value);
+            } else {
+                range.lt(value);
+            }
+            clause.filter(QueryBuilders.boolQuery()
+                .should(range)
+                .should(missing(field)));
+            after.should(clause);
+        }
+        //at least one clause, the last field (id) is never missing
+        return after.minimumNumberShouldMatch(1);
+    }
+
+    private static QueryBuilder equalTo(String field, Object value) {
+        return value == null ? missing(field) : QueryBuilders.termQuery(field, value);
+    }
+
+    private static QueryBuilder missing(String field) {
+        return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(field));
+    }
+
+    /**
+     * elasticsearch returns Long.MAX_VALUE or Long.MIN_VALUE as sort value for a missing numeric field
+     */
+    private static Object missingAsNull(Object value) {
+        if (value instanceof Long && ((Long) value == Long.MAX_VALUE || (Long) value == Long.MIN_VALUE)) {
+            return null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,232 @@
+package io.klask.repository.search;
+
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.search.profile.CollectorResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time of a search went, from a request run with "profile": true.
+ * The times of elasticsearch are in nanoseconds, they are converted in ms.
+ * <p>
+ * The rewrite of a shard is mostly the expansion of the wildcards, fuzzy and prefix terms, the expanded
+ * query is in the description of the query tree. The aggregations are timed by their collectors.
+ * Elasticsearch 2.4 doesn't profile the highlight, its time is measured by running the search with and
+ * without highlight.
+ * </p>
+ */
+public class SearchProfile {
+
+    private final String query;
+
+    private final long hits;
+
+    private final long took;
+
+    private final int failedShards;
+
+    private long highlightTime = -1;
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    public SearchProfile(String query, long hits, long took, int failedShards) {
+        this.query = query;
+        this.hits = hits;
+        this.took = took;
+        this.failedShards = failedShards;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the took of the profiled request in ms, the profiling slows down the search
+     */
+    public long getTook() {
+        return took;
+    }
+
+    public int getFailedShards() {
+        return failedShards;
+    }
+
+    /**
+     * @return the time of the highlight in ms, -1 if the highlight is disabled
+     */
+    public long getHighlightTime() {
+        return highlightTime;
+    }
+
+    void setHighlightTime(long highlightTime) {
+        this.highlightTime = highlightTime;
+    }
+
+    /**
+     * @return the profile of each shard, the slowest first
+     */
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    void addShard(String shard, ProfileShardResult result) throws IOException {
+        shards.add(new Shard(shard, result));
+        shards.sort(Comparator.comparingDouble(Shard::getTotalTime).reversed());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public static class Shard {
+
+        private final String shard;
+
+        private final double rewriteTime;
+
+        private final double queryTime;
+
+        private final double collectTime;
+
+        private final double aggregationTime;
+
+        private final List<Node> queries = new ArrayList<>();
+
+        private Shard(String shard, ProfileShardResult result) throws IOException {
+            this.shard = shard;
+            this.rewriteTime = toMillis(result.getRewriteTime());
+            //the ProfileResult of the queries isn't public, the tree is read from its xcontent
+            XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+            result.toXContent(builder, ToXContent.EMPTY_PARAMS).endObject();
+            double query = 0;
+            for (Map<String, Object> queryResult : Node.children(XContentHelper.convertToMap(builder.bytes(), false).v2(), "query")) {
+                Node node = new Node(queryResult);
+                query += node.getTime();
+                queries.add(node);
+            }
+            this.queryTime = query;
+            CollectorResult collector = result.getCollectorResult();
+            this.collectTime = collector == null ? 0 : toMillis(collector.getTime());
+            this.aggregationTime = toMillis(aggregationTime(collector));
+        }
+
+        private static long aggregationTime(CollectorResult collector) {
+            if (collector == null) {
+                return 0;
+            }
+            if (CollectorResult.REASON_AGGREGATION.equals(collector.getReason())
+                || CollectorResult.REASON_AGGREGATION_GLOBAL.equals(collector.getReason())) {
+                return collector.getTime();
+            }
+            return collector.getProfiledChildren().stream().mapToLong(Shard::aggregationTime).sum();
+        }
+
+        public String getShard() {
+            return shard;
+        }
+
+        /**
+         * @return the time of the rewrite in ms, which expands the multi term queries (wildcards...)
+         */
+        public double getRewriteTime() {
+            return rewriteTime;
+        }
+
+        /**
+         * @return the time of the queries in ms (weight, scorer, advance, match and score)
+         */
+        public double getQueryTime() {
+            return queryTime;
+        }
+
+        /**
+         * @return the time of the collectors in ms, queries and aggregations included
+         */
+        public double getCollectTime() {
+            return collectTime;
+        }
+
+        /**
+         * @return the time of the aggregation collectors in ms
+         */
+        public double getAggregationTime() {
+            return aggregationTime;
+        }
+
+        public double getTotalTime() {
+            return rewriteTime + Math.max(queryTime, collectTime);
+        }
+
+        /**
+         * @return the rewritten queries with their time
+         */
+        public List<Node> getQueries() {
+            return queries;
+        }
+    }
+
+    /**
+     * a lucene query of the profiled tree
+     */
+    public static class Node {
+
+        private final String type;
+
+        private final String description;
+
+        private final double time;
+
+        private final List<Node> children = new ArrayList<>();
+
+        private Node(Map<String, Object> result) {
+            this.type = (String) result.get("query_type");
+            this.description = (String) result.get("lucene");
+            //the time is formatted, the breakdown has the nanoseconds of each step
+            long nanos = 0;
+            Object breakdown = result.get("breakdown");
+            if (breakdown instanceof Map) {
+                for (Object step : ((Map<?, ?>) breakdown).values()) {
+                    nanos += ((Number) step).longValue();
+                }
+            }
+            this.time = toMillis(nanos);
+            children(result, "children").forEach(child -> children.add(new Node(child)));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Map<String, Object>> children(Map<String, Object> result, String field) {
+            Object children = result.get(field);
+            return children instanceof List ? (List<Map<String, Object>>) children : Collections.emptyList();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.klask.repository.search.mapper;
+
+import io.klask.domain.FileLine;
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Find the line numbers of the highlighted terms in the content of a file, and return them with their context lines.
+ * Each highlight fragment is located in the content, after the previous fragment since they come in the order of
+ * the file, then the position of each highlighted term is converted in a line number with the index of the line starts.
+ */
+public class MatchingLinesMapper {
+
+    private static final String PRE_TAG = "<mark>";
+    private static final String POST_TAG = "</mark>";
+
+    // a minified file has very long lines, the text of a line is truncated
+    private static final int MAX_LINE_LENGTH = 500;
+
+    private final int contextLines;
+
+    private final int maxMatchingLines;
+
+    /**
+     * @param contextLines number of lines before and after each matching line
+     * @param maxMatchingLines max number of matching lines by file
+     */
+    public MatchingLinesMapper(int contextLines, int maxMatchingLines) {
+        this.contextLines = contextLines;
+        this.maxMatchingLines = maxMatchingLines;
+    }
+
+    /**
+     * @param content the whole content of the file
+     * @param fragments the html encoded fragments, with the terms between mark tags
+     * @return the matching lines and their context lines, in the order of the file.
+     * The overlapping contexts are merged, like grep -C does
+     */
+    public List<FileLine> mapLines(String content, List<String> fragments) {
+        int[] lineStarts = lineStarts(content);
+        TreeMap<Integer, Boolean> lines = new TreeMap<>();
+        int matchingLines = 0;
+        int lastEnd = 0;
+        for (String fragment : fragments) {
+            List<Integer> markOffsets = new ArrayList<>();
+            String text = unmark(fragment, markOffsets);
+            if (text.isEmpty()) {
+                continue;
+            }
+            int fragmentStart = content.indexOf(text, lastEnd);
+            if (fragmentStart < 0) {
+                //the fragments sorted by score are out of order
+                fragmentStart = content.indexOf(text);
+            }
+            if (fragmentStart < 0) {
+                continue;
+            }
+            lastEnd = fragmentStart + text.length();
+            for (int markOffset : markOffsets) {
+                int line = lineOf(lineStarts, fragmentStart + markOffset);
+                if (!Boolean.TRUE.equals(lines.get(line))) {
+                    if (matchingLines++ >= maxMatchingLines) {
+                        break;
+                    }
+                    lines.put(line, true);
+                }
+            }
+        }
+
+        TreeMap<Integer, Boolean> withContext = new TreeMap<>(lines);
+        for (int line : lines.keySet()) {
+            for (int context = Math.max(0, line - contextLines); context <= Math.min(lineStarts.length - 1, line + contextLines); context++) {
+                withContext.putIfAbsent(context, false);
+            }
+        }
+
+        List<FileLine> result = new ArrayList<>(withContext.size());
+        for (Map.Entry<Integer, Boolean> entry : withContext.entrySet()) {
+            int line = entry.getKey();
+            int end = line + 1 < lineStarts.length ? lineStarts[line + 1] - 1 : content.length();
+            String text = content.substring(lineStarts[line], end);
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            if (text.length() > MAX_LINE_LENGTH) {
+                text = text.substring(0, MAX_LINE_LENGTH);
+            }
+            result.add(new FileLine(line + 1, text, entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * remove the mark tags and decode the html of the fragment
+     *
+     * @param fragment
+     * @param markOffsets filled with the offsets of the highlighted terms in the decoded text
+     * @return the decoded text
+     */
+    String unmark(String fragment, List<Integer> markOffsets) {
+        StringBuilder text = new StringBuilder();
+        int position = 0;
+        while (position < fragment.length()) {
+            int pre = fragment.indexOf(PRE_TAG, position);
+            if (pre < 0) {
+                text.append(StringEscapeUtils.unescapeHtml4(fragment.substring(position)));
+                break;
+            }
+            text.append(StringEscapeUtils.unescapeHtml4(fragment.substring(position, pre)));
+            markOffsets.add(text.length());
+            int post = fragment.indexOf(POST_TAG, pre);
+            post = post < 0 ? fragment.length() : post;
+            text.append(StringEscapeUtils.unescapeHtml4(fragment.substring(pre + PRE_TAG.length(), post)));
+            position = post + POST_TAG.length();
+        }
+        return text.toString();
+    }
+
+    private static int[] lineStarts(String content) {
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = content.indexOf('\n'); i >= 0; i = content.indexOf('\n', i + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * @return the line (starting at 0) which contains the offset
+     */
+    private static int lineOf(int[] lineStarts, int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+}
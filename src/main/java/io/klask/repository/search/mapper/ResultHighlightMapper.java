@@ -20,6 +20,22 @@ import java.util.stream.Collectors;
  */
 public class ResultHighlightMapper implements SearchResultMapper {
 
+    private static final String PRE_TAG = "<mark>";
+    private static final String POST_TAG = "</mark>";
+
+    private final int maxFragmentLength;
+
+    public ResultHighlightMapper() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxFragmentLength the fragments are trimmed to the lines of their first highlight, then to this length
+     */
+    public ResultHighlightMapper(int maxFragmentLength) {
+        this.maxFragmentLength = maxFragmentLength;
+    }
+
     @Override
     public <T> AggregatedPage<T> mapResults(SearchResponse response, Class<T> clazz, Pageable pageable) {
         List<File> result = new ArrayList<>();
@@ -29,15 +45,9 @@ public class ResultHighlightMapper implements SearchResultMapper {
                 return null;
             }
 
-            String summaryWithHighlight = null;
+            String summaryWithHighlight = summary(searchHit);
             String pathWithHighlight = null;
-            HighlightField highlightFieldContent = searchHit.getHighlightFields().get("content");
             HighlightField highlightFieldPath = searchHit.getHighlightFields().get("path");
-            if (highlightFieldContent != null) {
-                summaryWithHighlight = Arrays.stream(highlightFieldContent.fragments())
-                    .map(text -> EncodingUtil.convertToUTF8(text.toString()))
-                    .collect(Collectors.joining("\n[...]\n"));
-            }
             if (highlightFieldPath != null && highlightFieldPath.fragments() != null) {
                 pathWithHighlight = EncodingUtil.unEscapeString(highlightFieldPath.fragments()[0].toString());
             }
@@ -57,8 +67,70 @@ public class ResultHighlightMapper implements SearchResultMapper {
             oneFile.setScore(searchHit.getScore());
             oneFile.setLastAuthor((String) searchHit.getSource().get("lastAuthor"));
             oneFile.setLastDate((String) searchHit.getSource().get("lastDate"));
+            oneFile.setContentHash((String) searchHit.getSource().get("contentHash"));
             result.add(oneFile);
         }
         return new AggregatedPageImpl<>((List<T>) result, pageable, totalHits, response.getAggregations());
     }
+
+    /**
+     * @param searchHit
+     * @return the highlighted fragments of the content, trimmed and joined, null if the content isn't highlighted
+     */
+    public String summary(SearchHit searchHit) {
+        //a phrase search is highlighted on the code subfield
+        HighlightField highlightFieldContent = searchHit.getHighlightFields().get("content.code");
+        if (highlightFieldContent == null) {
+            highlightFieldContent = searchHit.getHighlightFields().get("content");
+        }
+        if (highlightFieldContent == null) {
+            return null;
+        }
+        return Arrays.stream(highlightFieldContent.fragments())
+            .map(text -> trimFragment(text.toString()))
+            .collect(Collectors.joining("\n[...]\n"));
+    }
+
+    /**
+     * the postings highlighter returns sentences, which can be a whole file for source code.
+     * Keep only the line of the first highlight, and at most maxFragmentLength characters around it,
+     * without cutting a tag or an html entity
+     *
+     * @param fragment
+     * @return
+     */
+    String trimFragment(String fragment) {
+        if (fragment.length() <= maxFragmentLength) {
+            return fragment;
+        }
+        int first = fragment.indexOf(PRE_TAG);
+        if (first < 0) {
+            first = 0;
+        }
+        int start = fragment.lastIndexOf('\n', first) + 1;
+        int end = fragment.indexOf('\n', first);
+        end = end < 0 ? fragment.length() : end;
+        if (end - start > maxFragmentLength) {
+            start = Math.max(start, first - maxFragmentLength / 4);
+            end = Math.min(end, start + maxFragmentLength);
+        }
+        //an entity like &lt; or a tag should not be cut
+        int entityStart = fragment.lastIndexOf('&', start);
+        if (entityStart >= 0 && start - entityStart < 8 && fragment.indexOf(';', entityStart) >= start) {
+            start = fragment.indexOf(';', entityStart) + 1;
+        }
+        int tagStart = fragment.lastIndexOf('<', end - 1);
+        if (tagStart >= start && fragment.indexOf('>', tagStart) >= end) {
+            end = fragment.indexOf('>', tagStart) + 1;
+        }
+        entityStart = fragment.lastIndexOf('&', end - 1);
+        if (entityStart >= start && end - entityStart < 8 && fragment.indexOf(';', entityStart) >= end) {
+            end = entityStart;
+        }
+        String trimmed = fragment.substring(start, Math.max(start, end));
+        if (trimmed.lastIndexOf(PRE_TAG) > trimmed.lastIndexOf(POST_TAG)) {
+            trimmed += POST_TAG;
+        }
+        return trimmed;
+    }
 }
@@ -0,0 +1,142 @@
+package io.klask.repository.search.mapper;
+
+import io.klask.config.Constants;
+import io.klask.domain.File;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verify a candidate of the trigram index against the regex, and construct the summary
+ * with the matching lines, the same way the highlighter does it for a query.
+ * The regex is matched until a deadline, so a catastrophic backtracking can't keep the request thread busy.
+ */
+public class ResultRegexMapper {
+
+    private final Pattern pattern;
+
+    private final long timeoutMillis;
+
+    private final long deadline;
+
+    public ResultRegexMapper(Pattern pattern) {
+        this(pattern, Constants.MAX_REGEX_VERIFY_MILLIS);
+    }
+
+    /**
+     * @param pattern
+     * @param timeoutMillis the time given to the regex to verify all the candidates of the search
+     */
+    public ResultRegexMapper(Pattern pattern, long timeoutMillis) {
+        this.pattern = pattern;
+        this.timeoutMillis = timeoutMillis;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * @param searchHit a candidate with the content in the source
+     * @return true if the content of the candidate really matches the regex
+     * @throws IllegalArgumentException if the deadline of the search is over
+     */
+    public boolean matches(SearchHit searchHit) {
+        String content = (String) searchHit.getSource().get("content");
+        return content != null && matcher(content).find();
+    }
+
+    private Matcher matcher(String content) {
+        return pattern.matcher(new DeadlineCharSequence(content));
+    }
+
+    /**
+     * @param searchHit a verified candidate
+     * @return the file, with the matching lines as summary
+     */
+    public File mapResult(SearchHit searchHit) {
+        File oneFile = new File(
+            (String) searchHit.getSource().get("id"),
+            (String) searchHit.getSource().get("name"),
+            (String) searchHit.getSource().get("extension"),
+            (String) searchHit.getSource().get("path"),
+            (String) searchHit.getSource().get("project"),
+            summary((String) searchHit.getSource().get("content")),
+            (String) searchHit.getSource().get("version"),
+            Long.valueOf(searchHit.getSource().get("size").toString())
+        );
+        oneFile.setLastAuthor((String) searchHit.getSource().get("lastAuthor"));
+        oneFile.setLastDate((String) searchHit.getSource().get("lastDate"));
+        return oneFile;
+    }
+
+    /**
+     * the first lines which contain a match, html escaped, with the match between mark tags
+     */
+    private String summary(String content) {
+        List<String> lines = new ArrayList<>();
+        Matcher matcher = matcher(content);
+        int lastLineEnd = -1;
+        while (lines.size() < Constants.REGEX_SUMMARY_LINES && matcher.find()) {
+            if (matcher.start() < lastLineEnd) {
+                //same line as the previous match
+                continue;
+            }
+            int lineStart = content.lastIndexOf('\n', matcher.start() - 1) + 1;
+            int lineEnd = content.indexOf('\n', matcher.end());
+            lineEnd = lineEnd < 0 ? content.length() : lineEnd;
+            //a match can cover several lines, or be empty at the end of a line
+            int matchEnd = Math.max(matcher.start(), Math.min(matcher.end(), lineEnd));
+            lines.add(StringEscapeUtils.escapeHtml4(content.substring(lineStart, matcher.start())) +
+                "<mark>" + StringEscapeUtils.escapeHtml4(content.substring(matcher.start(), matchEnd)) + "</mark>" +
+                StringEscapeUtils.escapeHtml4(content.substring(matchEnd, lineEnd)));
+            lastLineEnd = lineEnd + 1;
+            if (matcher.end() == matcher.start() && matcher.end() >= content.length()) {
+                break;
+            }
+        }
+        return String.join("\n[...]\n", lines);
+    }
+
+    /**
+     * the content read by the matcher, which checks the deadline from time to time
+     */
+    private final class DeadlineCharSequence implements CharSequence {
+
+        //the clock is read every CHECK_INTERVAL characters
+        private static final int CHECK_INTERVAL = 4096;
+
+        private final CharSequence content;
+
+        private int reads;
+
+        private DeadlineCharSequence(CharSequence content) {
+            this.content = content;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                throw new IllegalArgumentException("the regex took more than " + timeoutMillis + " ms to verify the candidates");
+            }
+            return content.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return content.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(content.subSequence(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return content.toString();
+        }
+    }
+}
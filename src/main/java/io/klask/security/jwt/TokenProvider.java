@@ -4,9 +4,14 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.SignatureException;
+import io.klask.config.Constants;
 import io.klask.config.JHipsterProperties;
+import org.bouncycastle.jcajce.provider.digest.SHA256;
+import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -16,6 +21,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -35,6 +41,9 @@ public class TokenProvider {
     @Inject
     private JHipsterProperties jHipsterProperties;
 
+    @Inject
+    private CacheManager cacheManager;
+
     @PostConstruct
     public void init() {
         this.secretKey =
@@ -67,12 +76,45 @@ public class TokenProvider {
             .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parser()
-            .setSigningKey(secretKey)
-            .parseClaimsJws(token)
-            .getBody();
+    /**
+     * Verify the token and return its authentication. The signature is verified once, then the authentication
+     * is kept in the token cache until the expiration of the token
+     *
+     * @param authToken
+     * @return the authentication, or null if the signature is invalid
+     * @throws io.jsonwebtoken.ExpiredJwtException if the token is expired
+     */
+    public Authentication authenticate(String authToken) {
+        Cache cache = cacheManager.getCache(Constants.TOKEN_CACHE);
+        String key = tokenHash(authToken);
+        VerifiedToken verified = cache.get(key, VerifiedToken.class);
+        if (verified != null) {
+            if (verified.expiration > System.currentTimeMillis()) {
+                return verified.authentication;
+            }
+            //the parsing below throws the ExpiredJwtException
+            cache.evict(key);
+        }
+
+        Claims claims;
+        try {
+            claims = Jwts.parser()
+                .setSigningKey(secretKey)
+                .parseClaimsJws(authToken)
+                .getBody();
+        } catch (SignatureException e) {
+            log.info("Invalid JWT signature: " + e.getMessage());
+            return null;
+        }
+        Authentication authentication = getAuthentication(claims);
+        //a token without expiration is not cached, its validity can't be bounded
+        if (claims.getExpiration() != null) {
+            cache.put(key, new VerifiedToken(authentication, claims.getExpiration().getTime()));
+        }
+        return authentication;
+    }
 
+    private Authentication getAuthentication(Claims claims) {
         Collection<? extends GrantedAuthority> authorities =
             Arrays.asList(claims.get(AUTHORITIES_KEY).toString().split(",")).stream()
                 .map(SimpleGrantedAuthority::new)
@@ -84,13 +126,30 @@ public class TokenProvider {
         return new UsernamePasswordAuthenticationToken(principal, "", authorities);
     }
 
-    public boolean validateToken(String authToken) {
-        try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(authToken);
-            return true;
-        } catch (SignatureException e) {
-            log.info("Invalid JWT signature: " + e.getMessage());
-            return false;
+    /**
+     * sha256 of the token, the cache doesn't keep the tokens themselves
+     *
+     * @param authToken
+     * @return
+     */
+    private String tokenHash(String authToken) {
+        SHA256.Digest md = new SHA256.Digest();
+        md.update(authToken.getBytes(StandardCharsets.UTF_8));
+        return Hex.toHexString(md.digest());
+    }
+
+    /**
+     * authentication of a verified token, and the expiration date of the token in milliseconds
+     */
+    private static class VerifiedToken {
+
+        private final Authentication authentication;
+
+        private final long expiration;
+
+        private VerifiedToken(Authentication authentication, long expiration) {
+            this.authentication = authentication;
+            this.expiration = expiration;
         }
     }
 }
@@ -1,7 +1,9 @@
 package io.klask.service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -10,8 +12,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
 import org.springframework.stereotype.Service;
 
+import com.codahale.metrics.MetricRegistry;
+
 import io.klask.config.KlaskProperties;
 import io.klask.crawler.AsyncCrawler;
+import io.klask.crawler.CrawlerProgress;
 import io.klask.crawler.ICrawler;
 import io.klask.crawler.impl.FileSystemCrawler;
 import io.klask.crawler.impl.GitCrawler;
@@ -31,7 +36,14 @@ public class CrawlerService {
     private final Logger log = LoggerFactory.getLogger(CrawlerService.class);
 
 
-    private List<ICrawler> taskList = new ArrayList<>();
+    //read by the REST layer while a crawl is running
+    private List<ICrawler> taskList = new CopyOnWriteArrayList<>();
+
+    //modifications of the index which are not counted by the current crawlers
+    private final AtomicLong indexGeneration = new AtomicLong();
+
+    //the generation is read and the crawlers are dropped under this lock, so the generation never goes back
+    private final Object generationLock = new Object();
 
     @Inject
     private ElasticsearchTemplate elasticsearchTemplate;
@@ -48,6 +60,9 @@ public class CrawlerService {
     @Inject
     private AsyncCrawler asyncCrawler;
 
+    @Inject
+    private MetricRegistry metricRegistry;
+
 
     /**
      * clear all the index
@@ -57,29 +72,34 @@ public class CrawlerService {
         elasticsearchTemplate.createIndex(File.class);
         elasticsearchTemplate.putMapping(File.class);
         elasticsearchTemplate.refresh(File.class);
+        notifyIndexChanged();
     }
 
     /**
      * reload the list of repositories
      */
     public void resetAllRepo() {
-        taskList.clear();
+        //keep the generation growing when the crawlers and their counters are dropped
+        synchronized (generationLock) {
+            indexGeneration.addAndGet(sumOfIndexCommits() + 1);
+            taskList.clear();
+        }
         //TODO : for now, we just use a fileSystem crawler
         for (Repository repo : repositoryRepository.findAll()) {
             ICrawler aCrawler;
             switch (repo.getType()) {
                 case GIT:
-                    aCrawler = new GitCrawler(repo, klaskProperties, elasticsearchTemplate);
+                    aCrawler = new GitCrawler(repo, klaskProperties, elasticsearchTemplate, metricRegistry);
                     break;
                 case GITLAB:
-                    aCrawler = new GitlabCrawler(repo, klaskProperties, elasticsearchTemplate);
+                    aCrawler = new GitlabCrawler(repo, klaskProperties, elasticsearchTemplate, metricRegistry);
                     break;
                 case SVN:
-                    aCrawler = new SVNCrawler(repo, klaskProperties, fileSearchRepository, elasticsearchTemplate, repositoryRepository);
+                    aCrawler = new SVNCrawler(repo, klaskProperties, fileSearchRepository, elasticsearchTemplate, repositoryRepository, metricRegistry);
                     break;
                 case FILE_SYSTEM:
                 default:
-                    aCrawler = new FileSystemCrawler(repo, klaskProperties, fileSearchRepository, elasticsearchTemplate);
+                    aCrawler = new FileSystemCrawler(repo, klaskProperties, fileSearchRepository, elasticsearchTemplate, metricRegistry);
                     break;
 
             }
@@ -113,6 +133,37 @@ public class CrawlerService {
         }
     }
 
+    /**
+     * return the progress of each declared crawler
+     */
+    public List<CrawlerProgress> getProgress() {
+        return this.taskList.stream()
+            .map(ICrawler::getProgress)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * return the generation of the index. It changes each time a crawler or a REST call modifies the documents
+     * of the alias, and is used in the keys of the search caches
+     */
+    public long getIndexGeneration() {
+        synchronized (generationLock) {
+            return indexGeneration.get() + sumOfIndexCommits();
+        }
+    }
+
+    /**
+     * signal a modification of the index done outside the crawlers
+     */
+    public void notifyIndexChanged() {
+        indexGeneration.incrementAndGet();
+    }
+
+    private long sumOfIndexCommits() {
+        return this.taskList.stream()
+            .mapToLong(ICrawler::getIndexCommits)
+            .sum();
+    }
 
 
 }
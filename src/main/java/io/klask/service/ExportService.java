@@ -0,0 +1,109 @@
+package io.klask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.klask.repository.search.CustomSearchRepository;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for the export of all the results of a search, without the limit of the paging.
+ */
+@Service
+public class ExportService {
+
+    private final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    @Inject
+    private CustomSearchRepository customSearchRepository;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    /**
+     * write all the files matching the query in the output stream, as one JSON document by line (NDJSON).
+     * The results are read with a scroll, so the memory used doesn't depend on the number of results
+     *
+     * @param query the query of the file search
+     * @param version the version filter
+     * @param project the project filter
+     * @param extension the extension filter
+     * @param withLines add the lines of the content which match the query
+     * @param outputStream
+     * @return the number of exported files
+     * @throws IOException if the output stream is closed (client disconnected)
+     */
+    public long exportAsNdjson(String query, List<String> version, List<String> project, List<String> extension,
+                               boolean withLines, OutputStream outputStream) throws IOException {
+        log.debug("Request to export files for query {}, version filter {}, project filter {}, extension filter {}", query, version, project, extension);
+        ObjectWriter writer = objectMapper.writer();
+        OutputStream out = new BufferedOutputStream(outputStream);
+        long[] count = {0L};
+        try {
+            customSearchRepository.scrollSearch(query, version, project, extension, withLines, hit -> {
+                try {
+                    out.write(writer.writeValueAsBytes(toRecord(hit, withLines)));
+                    out.write('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.debug("{} files exported for query {}", count[0], query);
+        return count[0];
+    }
+
+    private Map<String, Object> toRecord(SearchHit hit, boolean withLines) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("path", hit.getSource().get("path"));
+        record.put("project", hit.getSource().get("project"));
+        record.put("version", hit.getSource().get("version"));
+        record.put("size", hit.getSource().get("size"));
+        if (withLines) {
+            record.put("lines", matchingLines(hit.getHighlightFields().get("content")));
+        }
+        return record;
+    }
+
+    /**
+     * extract the lines with at least one highlighted term from the whole highlighted content
+     *
+     * @param content the highlight of the content, null if only the name or the path match the query
+     * @return the number (starting at 1) and the text of each matching line
+     */
+    private List<Map<String, Object>> matchingLines(HighlightField content) {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        if (content == null || content.fragments() == null || content.fragments().length == 0) {
+            return lines;
+        }
+        String[] contentLines = content.fragments()[0].string().split("\r?\n", -1);
+        for (int i = 0; i < contentLines.length; i++) {
+            if (contentLines[i].contains(CustomSearchRepository.SCROLL_PRE_TAG)) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("line", i + 1);
+                line.put("text", contentLines[i]
+                    .replace(CustomSearchRepository.SCROLL_PRE_TAG, "")
+                    .replace(CustomSearchRepository.SCROLL_POST_TAG, ""));
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
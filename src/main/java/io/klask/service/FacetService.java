@@ -0,0 +1,63 @@
+package io.klask.service;
+
+import io.klask.config.Constants;
+import io.klask.repository.search.CustomSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Service for the facet counts (number of documents by project, extension...) displayed next to the results.
+ * The counts on the whole alias are precomputed at the end of each crawl, the counts filtered by a query
+ * are kept a short time because the UI asks for them alongside every search.
+ */
+@Service
+public class FacetService {
+
+    // fields whose counts are precomputed at the end of each crawl
+    public static final String[] PRECOMPUTED_FIELDS = {"project", "extension"};
+
+    private final Logger log = LoggerFactory.getLogger(FacetService.class);
+
+    @Inject
+    private CustomSearchRepository customSearchRepository;
+
+    /**
+     * return the number of documents for each value of the field, sorted by count desc
+     *
+     * @param field the field to aggregate (project, extension...)
+     * @param query the search query, the counts are on the whole alias if empty
+     * @return an unmodifiable map
+     */
+    @Caching(cacheable = {
+        @Cacheable(cacheNames = Constants.FACETS_CACHE,
+            key = "{@crawlerService.indexGeneration, #field}",
+            condition = "#query == null || #query.isEmpty()"),
+        @Cacheable(cacheNames = Constants.FILTERED_FACETS_CACHE,
+            key = "{@crawlerService.indexGeneration, #field, #query}",
+            condition = "#query != null && !#query.isEmpty()")
+    })
+    public Map<String, Long> getFacets(String field, String query) {
+        log.debug("Request to aggregate {} for query {}", field, query);
+        return Collections.unmodifiableMap(customSearchRepository.aggregateByRawField(field, query));
+    }
+
+    /**
+     * compute the counts on the whole alias and replace the cached ones
+     *
+     * @param field the field to aggregate
+     * @return an unmodifiable map
+     */
+    @CachePut(cacheNames = Constants.FACETS_CACHE, key = "{@crawlerService.indexGeneration, #field}")
+    public Map<String, Long> refreshFacets(String field) {
+        log.debug("Request to precompute the facets of {}", field);
+        return Collections.unmodifiableMap(customSearchRepository.aggregateByRawField(field, null));
+    }
+}
@@ -0,0 +1,95 @@
+package io.klask.service;
+
+import com.codahale.metrics.MetricRegistry;
+import io.klask.config.KlaskProperties;
+import io.klask.repository.search.CursorPage;
+import io.klask.repository.search.SearchCacheMiss;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service recording the searches in the metrics klask.search.[kind] and in the slow query log.
+ * The searches are recorded around the calls to the cached CustomSearchRepository, so the cache hits are
+ * measured too. A cache hit is a search not executed in elasticsearch (see SearchCacheMiss), it has no took.
+ */
+@Service
+public class SearchMetricsService {
+
+    //latency, took, cache hits and failed shards of each kind of search
+    private static final String METRIC_PREFIX = "klask.search";
+
+    private final Logger log = LoggerFactory.getLogger(SearchMetricsService.class);
+
+    //the searches slower than klask.search.slowQuery.threshold
+    private final Logger slowQueryLog = LoggerFactory.getLogger("io.klask.search.slowquery");
+
+    @Inject
+    private KlaskProperties klaskProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * start a search, to call before the repository
+     *
+     * @return the start of the search, to give to record
+     */
+    public long start() {
+        SearchCacheMiss.reset();
+        return System.nanoTime();
+    }
+
+    /**
+     * record a search : the latency in a timer, the took of elasticsearch in a histogram, the cache hits and the
+     * failed shards in meters. The searches slower than klask.search.slowQuery.threshold are written with their
+     * filters in the slow query log
+     *
+     * @param kind search, facets, collapse, phrase, regex or all
+     * @param query the query, null for all
+     * @param version
+     * @param project
+     * @param extension
+     * @param pageable
+     * @param start the value of start(), called before the repository
+     * @param page the page returned by the repository, null if the query was empty
+     * @return the page to return to the client, a copy flagged as cached if it comes from the search cache
+     */
+    public <T> CursorPage<T> record(String kind, String query, List<String> version, List<String> project, List<String> extension,
+                                    Pageable pageable, long start, CursorPage<T> page) {
+        boolean miss = SearchCacheMiss.consume();
+        if (page == null) {
+            return null;
+        }
+        CursorPage<T> served = miss ? page : page.cachedCopy();
+        long latency = System.nanoTime() - start;
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latency);
+        metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, kind)).update(latency, TimeUnit.NANOSECONDS);
+        if (served.isCached()) {
+            metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, kind, "cacheHits")).mark();
+        } else {
+            if (served.getTook() >= 0) {
+                metricRegistry.histogram(MetricRegistry.name(METRIC_PREFIX, kind, "took")).update(served.getTook());
+            }
+            if (served.getFailedShards() > 0) {
+                metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, kind, "failedShards")).mark(served.getFailedShards());
+                log.warn("{} search [{}] failed on {} shards", kind, query, served.getFailedShards());
+            }
+        }
+        log.debug("{} search [{}] in {} ms, took {} ms, {} hits, cached {}",
+            kind, query, latencyMillis, served.getTook(), served.getTotalElements(), served.isCached());
+
+        long threshold = klaskProperties.getSearch().getSlowQuery().getThreshold();
+        if (threshold >= 0 && latencyMillis >= threshold) {
+            slowQueryLog.info("{} ms, took {} ms, {} hits, {} failed shards, cached {} : {} [{}] version={} project={} extension={} page={} size={} sort={}",
+                latencyMillis, served.getTook(), served.getTotalElements(), page.getFailedShards(), served.isCached(), kind, query,
+                version, project, extension, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+        }
+        return served;
+    }
+}
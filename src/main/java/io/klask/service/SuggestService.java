@@ -0,0 +1,41 @@
+package io.klask.service;
+
+import io.klask.config.Constants;
+import io.klask.repository.search.CustomSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service for the typeahead of the search box. The suggestions only change after a crawl,
+ * so they are cached with the index generation in the key.
+ */
+@Service
+public class SuggestService {
+
+    // the typeahead doesn't need more suggestions
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    @Inject
+    private CustomSearchRepository customSearchRepository;
+
+    /**
+     * return the completions of the prefix (file names, path segments, projects and symbols)
+     *
+     * @param prefix the beginning of the word typed by the user
+     * @param size the number of suggestions, at most MAX_SUGGESTIONS
+     * @return an unmodifiable list
+     */
+    @Cacheable(cacheNames = Constants.SUGGEST_CACHE, key = "{@crawlerService.indexGeneration, #prefix, #size}")
+    public List<String> suggest(String prefix, int size) {
+        log.debug("Request to suggest {} completions for {}", size, prefix);
+        return Collections.unmodifiableList(customSearchRepository.suggest(prefix, Math.min(size, MAX_SUGGESTIONS)));
+    }
+}
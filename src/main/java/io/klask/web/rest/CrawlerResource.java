@@ -2,6 +2,10 @@ package io.klask.web.rest;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -10,16 +14,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.codahale.metrics.annotation.Timed;
 
 import io.klask.service.CrawlerService;
 import io.klask.service.IndexService;
+import io.klask.web.rest.dto.CrawlerProgressDTO;
 
 /**
  * REST controller for managing File.
@@ -30,6 +37,11 @@ public class CrawlerResource {
 
     private final Logger log = LoggerFactory.getLogger(CrawlerResource.class);
 
+    //a client listening the progress stream is disconnected after this delay, and should reconnect
+    private static final long PROGRESS_STREAM_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+    private final List<SseEmitter> progressEmitters = new CopyOnWriteArrayList<>();
+
     @Inject
     private CrawlerService crawlerService;
 
@@ -74,6 +86,64 @@ public class CrawlerResource {
     }
 
 
+    /**
+     * GET /crawler/progress : the progress of each repository (phase, counters, throughput and ETA)
+     *
+     * @return the ResponseEntity with status 200 (OK) and the list of progress in body
+     */
+    @RequestMapping(value = "/crawler/progress",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<CrawlerProgressDTO>> getProgress() {
+        log.debug("REST request to get crawler progress");
+        return new ResponseEntity<>(currentProgress(), HttpStatus.OK);
+    }
+
+    /**
+     * GET /crawler/progress/stream : server-sent events stream, pushing the progress of each repository every second
+     *
+     * @return the emitter registered for this client
+     */
+    @RequestMapping(value = "/crawler/progress/stream",
+        method = RequestMethod.GET,
+        produces = "text/event-stream")
+    public SseEmitter streamProgress() throws IOException {
+        log.debug("REST request to stream crawler progress");
+        SseEmitter emitter = new SseEmitter(PROGRESS_STREAM_TIMEOUT);
+        emitter.onCompletion(() -> progressEmitters.remove(emitter));
+        emitter.onTimeout(() -> progressEmitters.remove(emitter));
+        progressEmitters.add(emitter);
+        //first event is sent immediately, the client doesn't wait the next push
+        emitter.send(SseEmitter.event().name("progress").data(currentProgress(), MediaType.APPLICATION_JSON));
+        return emitter;
+    }
+
+    /**
+     * push the progress to all clients listening the stream
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void pushProgress() {
+        if (progressEmitters.isEmpty()) {
+            return;
+        }
+        List<CrawlerProgressDTO> progress = currentProgress();
+        for (SseEmitter emitter : progressEmitters) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(progress, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("progress stream closed by the client : {}", e.getMessage());
+                progressEmitters.remove(emitter);
+            }
+        }
+    }
+
+    private List<CrawlerProgressDTO> currentProgress() {
+        return this.crawlerService.getProgress().stream()
+            .map(CrawlerProgressDTO::new)
+            .collect(Collectors.toList());
+    }
+
     /**
      * Stop the crawler
      *
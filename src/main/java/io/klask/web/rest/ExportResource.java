@@ -0,0 +1,67 @@
+package io.klask.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import io.klask.service.ExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * REST controller for the export of search results.
+ */
+@RestController
+@RequestMapping("/api")
+public class ExportResource {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final Logger log = LoggerFactory.getLogger(ExportResource.class);
+
+    @Inject
+    private ExportService exportService;
+
+    /**
+     * GET  /_export/files?query=:query : export all the files corresponding to the query, one JSON document
+     * by line (path, project, version, size and optionally the matching lines). The response is streamed, there is
+     * no limit on the number of results.
+     *
+     * @param version the version filter
+     * @param project the project filter
+     * @param extension the extension filter
+     * @param query the query of the file search
+     * @param lines add the matching lines of the content to each file
+     * @return the ResponseEntity with status 200 (OK) and the streamed NDJSON in body
+     */
+    @RequestMapping(value = "/_export/files",
+        method = RequestMethod.GET,
+        produces = APPLICATION_NDJSON_VALUE)
+    @Timed
+    public ResponseEntity<StreamingResponseBody> exportFiles(@RequestParam(required = false) List<String> version,
+                                                             @RequestParam(required = false) List<String> project,
+                                                             @RequestParam(required = false) List<String> extension,
+                                                             @RequestParam String query,
+                                                             @RequestParam(defaultValue = "false") boolean lines) {
+        log.debug("REST request to export Files for query {}, version filter {}, project filter {}, extension filter {}", query, version, project, extension);
+        if (extension != null && extension.contains("empty")) {
+            extension.add("");
+            extension.remove("empty");
+        }
+
+        StreamingResponseBody body = outputStream ->
+            exportService.exportAsNdjson(query, version, project, extension, lines, outputStream);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"klask-export.ndjson\"");
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
@@ -1,7 +1,7 @@
 package io.klask.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
-import io.klask.repository.search.CustomSearchRepository;
+import io.klask.service.FacetService;
 import io.klask.web.rest.dto.ExtensionDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +30,7 @@ public class ExtensionResource {
     private final Logger log = LoggerFactory.getLogger(ExtensionResource.class);
 
     @Inject
-    private CustomSearchRepository customSearchRepository;
+    private FacetService facetService;
 
     /**
      * SEARCH  /_search/extensions?query=:query : search for the extension corresponding
@@ -46,7 +46,18 @@ public class ExtensionResource {
     public ResponseEntity<List<ExtensionDTO>> searchextensions(@RequestParam(required = false) String query)
         throws URISyntaxException {
         log.debug("REST request to search extensions for query {}", query);
-        Map<String, Long> extensions = customSearchRepository.aggregateByRawField("extension", query);
+        return new ResponseEntity<>(toExtensionDTOs(facetService.getFacets("extension", query)), HttpStatus.OK);
+    }
+
+    /**
+     * convert the counts by extension in DTOs, the files without extension are named "empty"
+     *
+     * @param counts the counts by extension, not modified
+     * @return the DTOs sorted by count desc
+     */
+    static List<ExtensionDTO> toExtensionDTOs(Map<String, Long> counts) {
+        //the cached counts are shared, work on a copy
+        Map<String, Long> extensions = new LinkedHashMap<>(counts);
         if (extensions.containsKey("")) {
             extensions.put("empty", extensions.get(""));
             extensions.remove("");
@@ -58,7 +69,7 @@ public class ExtensionResource {
 
         List<ExtensionDTO> listExtensionDTO = new LinkedList<>();
         result.forEach((key, value) -> listExtensionDTO.add(new ExtensionDTO(key, value)));
-        return new ResponseEntity<>(listExtensionDTO, HttpStatus.OK);
+        return listExtensionDTO;
     }
 
 }
@@ -5,28 +5,51 @@ import io.klask.config.Constants;
 import io.klask.domain.File;
 import io.klask.repository.search.CustomSearchRepository;
 import io.klask.repository.search.FileSearchRepository;
+import io.klask.repository.search.SearchProfile;
+import io.klask.security.AuthoritiesConstants;
+import io.klask.service.CrawlerService;
+import io.klask.service.SearchMetricsService;
 import io.klask.web.rest.dto.FileDetailDTO;
-import io.klask.web.rest.util.EncodingUtil;
+import io.klask.web.rest.dto.ProjectDTO;
+import io.klask.web.rest.dto.SearchResultDTO;
+import io.klask.web.rest.dto.VersionDTO;
+import io.klask.web.rest.mapper.FileMapper;
 import io.klask.web.rest.util.HeaderUtil;
 import io.klask.web.rest.util.PaginationUtil;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.elasticsearch.search.SearchHit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.aggregation.AggregatedPage;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -45,6 +68,12 @@ public class FileResource {
     @Inject
     private CustomSearchRepository customSearchRepository;
 
+    @Inject
+    private CrawlerService crawlerService;
+
+    @Inject
+    private SearchMetricsService searchMetricsService;
+
     /**
      * POST  /files : Create a new file.
      *
@@ -63,6 +92,7 @@ public class FileResource {
         }
         file.setId(UUID.randomUUID().toString());
         fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
         return ResponseEntity.created(new URI("/api/files/" + file.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("file", file.getId()))
             .body(file);
@@ -87,6 +117,7 @@ public class FileResource {
             return createFile(file);
         }
         fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("file", file.getId()))
             .body(file);
@@ -98,7 +129,9 @@ public class FileResource {
      * @param pageable the pagination information
      * @param version the version filter if set
      * @param project the project filter if set
-     * @return the ResponseEntity with status 200 (OK) and the list of files in body
+     * @param cursor the cursor of the previous page (X-Next-Cursor header) for the deep pagination
+     * @return the ResponseEntity with status 200 (OK) and the list of files in body,
+     * or with status 400 (Bad Request) if the cursor is not valid
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/files",
@@ -108,6 +141,7 @@ public class FileResource {
     public ResponseEntity<List<File>> getAllFiles(@RequestParam(required = false) List<String> version,
                                                   @RequestParam(required = false) List<String> project,
                                                   @RequestParam(required = false) List<String> extension,
+                                                  @RequestParam(required = false) String cursor,
                                                   Pageable pageable)
         throws URISyntaxException {
         //check if pageable is ok (has sort, page number, page size) and set to default if necessary
@@ -115,7 +149,8 @@ public class FileResource {
         log.debug("REST request to get page {} for All Files with filter version {} and project {}", pageable.getPageNumber() + 1, version, project);
 
         //verification if we got a request with a big page number wich is greater than the max result search window
-        if (pageable.getPageNumber() * pageable.getPageSize() >= Constants.MAX_RESULT_SEARCH_WINDOW) {
+        //with a cursor, the previous pages are not read so there is no limit
+        if (cursor == null && pageable.getPageNumber() * pageable.getPageSize() >= Constants.MAX_RESULT_SEARCH_WINDOW) {
             log.warn("getAllFiles : page request too high : {}", pageable.getPageNumber());
             pageable = new PageRequest(0, pageable.getPageSize(), pageable.getSort());
         }
@@ -126,7 +161,13 @@ public class FileResource {
         }
 
         //page = fileSearchRepository.findAll(pageable);
-        page = customSearchRepository.customfindAll(pageable, version, project, extension);
+        try {
+            long start = searchMetricsService.start();
+            page = searchMetricsService.record("all", null, version, project, extension, pageable, start,
+                customSearchRepository.customfindAll(pageable, version, project, extension, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcursor", e.getMessage())).body(null);
+        }
         //page = customSearchRepository.findWithHighlightedSummary(pageable,"",version);
         //Page<File> page = customSearchRepository.findWithHighlightedSummary("", pageable);
 
@@ -150,12 +191,6 @@ public class FileResource {
 
         File file = customSearchRepository.findOne(id);
 
-        //TODO vérifier que le fichier est readable (extraire la configuration dans des classes à part)
-        //if( file != null && file is readable)
-        if (file != null && file.getContent() != null) {
-            file.setContent(EncodingUtil.convertToUTF8(file.getContent()));
-        }
-
         FileDetailDTO fileDetail = (file == null) ? null : new FileDetailDTO(file);
 
         return Optional.ofNullable(fileDetail)
@@ -177,12 +212,6 @@ public class FileResource {
         log.debug("REST request to get File : {}", path);
         File file = fileSearchRepository.findFirstByPath(path);
 
-        //TODO vérifier que le fichier est readable (extraire la configuration dans des classes à part)
-        //if( file != null && file is readable)
-        if (file != null && file.getContent() != null) {
-            file.setContent(EncodingUtil.convertToUTF8(file.getContent()));
-        }
-
         FileDetailDTO fileDetail = (file == null) ? null : new FileDetailDTO(file);
 
         return Optional.ofNullable(fileDetail)
@@ -190,6 +219,71 @@ public class FileResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /files/:id/raw : get the content of the "id" file, encoded in UTF-8.
+     * The ETag is the content hash (or the version of the document), a matching If-None-Match is answered with
+     * a 304 without reading the content. A single range of bytes is answered with a 206, several ranges with
+     * the whole content
+     *
+     * @param id the id of the file to retrieve
+     * @param range the Range header
+     * @param webRequest the request, to check If-None-Match
+     * @return the ResponseEntity with status 200 (OK) and with body the content, 206 (Partial Content) and with body
+     * the range, 304 (Not Modified), 416 (Requested Range Not Satisfiable), or with status 404 (Not Found)
+     * @throws IOException if the content can't be read
+     */
+    @RequestMapping(value = "/files/{id}/raw",
+        method = RequestMethod.GET)
+    @Timed
+    public ResponseEntity<Resource> getRawFile(@PathVariable String id,
+                                        @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+                                        WebRequest webRequest) throws IOException {
+        log.debug("REST request to get raw File : {}", id);
+        SearchHit hit = customSearchRepository.findOneWithoutContent(id, "name", "extension", "contentHash");
+        if (hit == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Map<String, Object> source = hit.getSource() == null ? Collections.emptyMap() : hit.getSource();
+        String contentHash = (String) source.get("contentHash");
+        String eTag = "\"" + (contentHash != null ? contentHash : hit.getIndex() + "-" + hit.getVersion()) + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        Resource content = customSearchRepository.findContent(id);
+        if (content == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        String extension = (String) source.get("extension");
+        String name = source.get("name") == null ? id : (String) source.get("name");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setContentType(new MediaType(MediaType.valueOf(FileMapper.getMediaType(extension)), StandardCharsets.UTF_8));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + name.replace("\"", "") + "\"");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set("X-Content-Type-Options", "nosniff");
+
+        if (range != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    ResourceRegion region = ranges.get(0).toResourceRegion(content);
+                    InputStream in = content.getInputStream();
+                    IOUtils.skipFully(in, region.getPosition());
+                    headers.setContentLength(region.getCount());
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-" +
+                        (region.getPosition() + region.getCount() - 1) + "/" + content.contentLength());
+                    return new ResponseEntity<>(new InputStreamResource(new BoundedInputStream(in, region.getCount())),
+                        headers, HttpStatus.PARTIAL_CONTENT);
+                }
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + content.contentLength());
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+        }
+        return new ResponseEntity<>(content, headers, HttpStatus.OK);
+    }
+
     /**
      * DELETE  /files/:id : delete the "id" file.
      *
@@ -203,6 +297,7 @@ public class FileResource {
     public ResponseEntity<Void> deleteFile(@PathVariable String id) {
         log.debug("REST request to delete File : {}", id);
         fileSearchRepository.delete(id);
+        crawlerService.notifyIndexChanged();
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("file", id)).build();
     }
 
@@ -214,7 +309,20 @@ public class FileResource {
      * @param project the project filter
      * @param extension the extension filter
      * @param query the query of the file search
-     * @return the result of the search
+     * @param cursor the cursor of the previous page (X-Next-Cursor header) for the deep pagination,
+     *               only available if the results are not sorted by score
+     * @param regex if true, the query is a java regular expression matched on the content, the candidates are
+     *              selected with the trigram index then verified. The regex needs a literal of 3 characters
+     *              and can't be used with a cursor
+     * @param phrase if true, the query is a code snippet searched as an exact phrase, punctuation included
+     * @param highlight if false, the files are returned without fragments of content, which is faster on big files
+     * @param exactCount if false, the search stops after klask.search.terminateAfter documents by shard, which is
+     *                   faster when the count and the order of the results don't matter (X-Terminated-Early header)
+     * @param collapse "content" or "path" to return only one file by group of identical files, with the versions
+     *                 of the group. Can't be used with a cursor
+     * @param lines if true, the files come with the line numbers and the context lines of their fragments, which
+     *              reads the content of the files on the page
+     * @return the result of the search, or with status 400 (Bad Request) if the cursor or the regex is not valid
      */
     @RequestMapping(value = "/_search/files",
         method = RequestMethod.GET,
@@ -224,6 +332,13 @@ public class FileResource {
                                                   @RequestParam(required = false) List<String> project,
                                                   @RequestParam(required = false) List<String> extension,
                                                   @RequestParam String query,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "false") boolean regex,
+                                                  @RequestParam(defaultValue = "false") boolean phrase,
+                                                  @RequestParam(defaultValue = "true") boolean highlight,
+                                                  @RequestParam(defaultValue = "true") boolean exactCount,
+                                                  @RequestParam(required = false) String collapse,
+                                                  @RequestParam(defaultValue = "false") boolean lines,
                                                   Pageable pageable)
         throws URISyntaxException, UnsupportedEncodingException {
         //check if pageable is ok (has sort, page number, page size) and set to default if necessary
@@ -246,7 +361,47 @@ public class FileResource {
             extension.remove("empty");
         }
 
-        Page<File> page = customSearchRepository.customSearchWithHighlightedSummary(pageable, query, version, project, extension);
+        Page<File> page;
+        if (regex) {
+            if (cursor != null) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcursor", "a cursor can't be used with a regex search")).body(null);
+            }
+            try {
+                long start = searchMetricsService.start();
+                page = searchMetricsService.record("regex", query, version, project, extension, pageable, start,
+                    customSearchRepository.customRegexSearch(pageable, query, version, project, extension));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidregex", e.getMessage())).body(null);
+            }
+            HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders(query, page, "/api/_search/files");
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+        if (collapse != null) {
+            if (cursor != null) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcursor", "a cursor can't be used with a collapsed search")).body(null);
+            }
+            try {
+                long start = searchMetricsService.start();
+                page = searchMetricsService.record("collapse", query, version, project, extension, pageable, start,
+                    customSearchRepository.customSearchCollapsed(pageable, query, version, project, extension, collapse, lines));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcollapse", e.getMessage())).body(null);
+            }
+            HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders(query, page, "/api/_search/files");
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+        try {
+            long start = searchMetricsService.start();
+            if (phrase) {
+                page = searchMetricsService.record("phrase", query, version, project, extension, pageable, start,
+                    customSearchRepository.customPhraseSearch(pageable, query, version, project, extension, cursor, lines));
+            } else {
+                page = searchMetricsService.record("search", query, version, project, extension, pageable, start,
+                    customSearchRepository.customSearchWithHighlightedSummary(pageable, query, version, project, extension, cursor, highlight, exactCount, lines));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcursor", e.getMessage())).body(null);
+        }
         //Page<File> page = customSearchRepository.findWithHighlightedSummary(pageable, query, version, project);
 
         //Page<FileDTO> result = page.map(file -> convertToDTO(file));
@@ -254,6 +409,84 @@ public class FileResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/files/faceted?query=:query : search for the files corresponding
+     * to the query, with the version, project and extension facets computed in the same elasticsearch request.
+     *
+     * @param version the version filter
+     * @param project the project filter
+     * @param extension the extension filter
+     * @param query the query of the file search
+     * @param cursor the cursor of the previous page (X-Next-Cursor header) for the deep pagination,
+     *               only available if the results are not sorted by score
+     * @param lines if true, the files come with the line numbers and the context lines of their fragments
+     * @return the page of files and the facets of the query, or with status 400 (Bad Request) if the cursor is not valid
+     */
+    @RequestMapping(value = "/_search/files/faceted",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<SearchResultDTO> searchFilesWithFacets(@RequestParam(required = false) List<String> version,
+                                                                 @RequestParam(required = false) List<String> project,
+                                                                 @RequestParam(required = false) List<String> extension,
+                                                                 @RequestParam String query,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "false") boolean lines,
+                                                                 Pageable pageable)
+        throws URISyntaxException, UnsupportedEncodingException {
+        pageable = CheckOrUpdatePageable(pageable);
+        log.debug("REST request to search with facets for page {} of Files for query {}, version filter {}, project filter {}, extension filter {}", pageable.getPageNumber() + 1, query, version, project, extension);
+
+        if (extension != null && extension.contains("empty")) {
+            extension.add("");
+            extension.remove("empty");
+        }
+
+        AggregatedPage<File> page;
+        try {
+            long start = searchMetricsService.start();
+            page = searchMetricsService.record("facets", query, version, project, extension, pageable, start,
+                customSearchRepository.customSearchWithFacets(pageable, query, version, project, extension, cursor, lines));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("file", "invalidcursor", e.getMessage())).body(null);
+        }
+
+        List<VersionDTO> versions = new LinkedList<>();
+        customSearchRepository.getFacetCounts(page, "version").forEach((key, value) -> versions.add(new VersionDTO(key, value)));
+        List<ProjectDTO> projects = new LinkedList<>();
+        customSearchRepository.getFacetCounts(page, "project").forEach((key, value) -> projects.add(new ProjectDTO(key, value)));
+
+        SearchResultDTO result = new SearchResultDTO(page.getContent(), versions, projects,
+            ExtensionResource.toExtensionDTOs(customSearchRepository.getFacetCounts(page, "extension")));
+        HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders(query, page, "/api/_search/files/faceted");
+        return new ResponseEntity<>(result, headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /_search/files/profile?query=:query : run the search with the profiling of elasticsearch, to know
+     * where the time of a slow query went : expansion of the wildcards, queries, aggregations and highlight.
+     *
+     * @param version the version filter
+     * @param project the project filter
+     * @param extension the extension filter
+     * @param query the query of the file search
+     * @return the profile of the search, the slowest shard first
+     */
+    @RequestMapping(value = "/_search/files/profile",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<SearchProfile> profileSearchFiles(@RequestParam(required = false) List<String> version,
+                                                            @RequestParam(required = false) List<String> project,
+                                                            @RequestParam(required = false) List<String> extension,
+                                                            @RequestParam String query,
+                                                            Pageable pageable) {
+        pageable = CheckOrUpdatePageable(pageable);
+        log.debug("REST request to profile the search of Files for query {}, version filter {}, project filter {}, extension filter {}", query, version, project, extension);
+        return new ResponseEntity<>(customSearchRepository.profileSearch(pageable, query, version, project, extension), HttpStatus.OK);
+    }
+
     /**
      * check if object pageable is well formated.
      * It should have sort, page number and page size or the method set to default value if necessary
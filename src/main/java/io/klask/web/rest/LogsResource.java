@@ -3,12 +3,17 @@ package io.klask.web.rest;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
 import com.codahale.metrics.annotation.Timed;
+import io.klask.aop.logging.LoggingAspect;
 import io.klask.web.rest.dto.LoggerDTO;
+import io.klask.web.rest.dto.LoggingAspectDTO;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,6 +24,10 @@ import java.util.stream.Collectors;
 @RequestMapping("/management/jhipster")
 public class LogsResource {
 
+    //only registered if klask.aspect.mode is not off
+    @Autowired(required = false)
+    private LoggingAspect loggingAspect;
+
     @RequestMapping(value = "/logs",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
@@ -39,4 +48,34 @@ public class LogsResource {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
         context.getLogger(jsonLogger.getName()).setLevel(Level.valueOf(jsonLogger.getLevel()));
     }
+
+    @RequestMapping(value = "/logs/aspect",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<LoggingAspectDTO> getAspect() {
+        if (loggingAspect == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new LoggingAspectDTO(loggingAspect));
+    }
+
+    /**
+     * PUT  /logs/aspect : switch the LoggingAspect between debug logs and sampled timers, without restart.
+     * The aspect can't be added or removed at runtime, that needs klask.aspect.mode and a restart
+     *
+     * @param aspect the mode and the fraction of the calls timed in the sampling mode
+     * @return the ResponseEntity with status 204 (No Content), or with status 404 (Not Found) if the aspect is off
+     */
+    @RequestMapping(value = "/logs/aspect",
+        method = RequestMethod.PUT)
+    @Timed
+    public ResponseEntity<Void> changeAspect(@Valid @RequestBody LoggingAspectDTO aspect) {
+        if (loggingAspect == null) {
+            return ResponseEntity.notFound().build();
+        }
+        loggingAspect.setSampleRate(aspect.getSampleRate());
+        loggingAspect.setMode(aspect.getMode());
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,7 +1,7 @@
 package io.klask.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
-import io.klask.repository.search.CustomSearchRepository;
+import io.klask.service.FacetService;
 import io.klask.web.rest.dto.ProjectDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +29,7 @@ public class ProjectResource {
     private final Logger log = LoggerFactory.getLogger(ProjectResource.class);
 
     @Inject
-    private CustomSearchRepository customSearchRepository;
+    private FacetService facetService;
 
     /**
      * SEARCH  /_search/projects?query=:query : search for the project corresponding
@@ -45,7 +45,7 @@ public class ProjectResource {
     public ResponseEntity<List<ProjectDTO>> searchprojects(@RequestParam(required = false) String query)
         throws URISyntaxException {
         log.debug("REST request to search projects for query {}", query);
-        Map<String, Long> projects = customSearchRepository.aggregateByRawField("project", query);
+        Map<String, Long> projects = facetService.getFacets("project", query);
         List<ProjectDTO> listProjectDTO = new LinkedList<>();
         projects.forEach((key, value) -> listProjectDTO.add(new ProjectDTO(key, value)));
         return new ResponseEntity<>(listProjectDTO, HttpStatus.OK);
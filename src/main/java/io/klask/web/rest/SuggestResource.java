@@ -0,0 +1,52 @@
+package io.klask.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import io.klask.service.SuggestService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * REST controller for the typeahead of the search box.
+ */
+@RestController
+@RequestMapping("/api")
+public class SuggestResource {
+
+    private final Logger log = LoggerFactory.getLogger(SuggestResource.class);
+
+    @Inject
+    private SuggestService suggestService;
+
+    /**
+     * GET  /_suggest?prefix=:prefix : get the completions of the prefix among the file names,
+     * path segments, projects and symbols
+     *
+     * @param prefix the beginning of the word typed by the user
+     * @param size the number of suggestions
+     * @return the ResponseEntity with status 200 (OK) and the list of suggestions in body
+     */
+    @RequestMapping(value = "/_suggest",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<String>> suggest(@RequestParam String prefix,
+                                                @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest completions for {}", prefix);
+        if (StringUtils.isBlank(prefix) || size <= 0) {
+            return new ResponseEntity<>(Collections.emptyList(), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(suggestService.suggest(prefix, size), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,116 @@
+package io.klask.web.rest.dto;
+
+import io.klask.crawler.CrawlerProgress;
+import io.klask.domain.enumeration.RepositoryType;
+
+/**
+ * A DTO representing a snapshot of the progress of one crawler
+ */
+public class CrawlerProgressDTO {
+
+    private Long repositoryId;
+
+    private String repositoryName;
+
+    private RepositoryType repositoryType;
+
+    private CrawlerProgress.Phase phase;
+
+    private long filesSeen;
+
+    private long filesIndexed;
+
+    private long totalFiles;
+
+    private long failures;
+
+    private long bytesRead;
+
+    private long elapsedMillis;
+
+    private double docsPerSecond;
+
+    private double megaBytesPerSecond;
+
+    private long etaSeconds;
+
+    public CrawlerProgressDTO(CrawlerProgress progress) {
+        this.repositoryId = progress.getRepositoryId();
+        this.repositoryName = progress.getRepositoryName();
+        this.repositoryType = progress.getRepositoryType();
+        this.phase = progress.getPhase();
+        this.filesSeen = progress.getFilesSeen();
+        this.filesIndexed = progress.getFilesIndexed();
+        this.totalFiles = progress.getTotalFiles();
+        this.failures = progress.getFailures();
+        this.bytesRead = progress.getBytesRead();
+        this.elapsedMillis = progress.getElapsedMillis();
+        this.docsPerSecond = progress.getDocsPerSecond();
+        this.megaBytesPerSecond = progress.getMegaBytesPerSecond();
+        this.etaSeconds = progress.getEtaSeconds();
+    }
+
+    public Long getRepositoryId() {
+        return repositoryId;
+    }
+
+    public String getRepositoryName() {
+        return repositoryName;
+    }
+
+    public RepositoryType getRepositoryType() {
+        return repositoryType;
+    }
+
+    public CrawlerProgress.Phase getPhase() {
+        return phase;
+    }
+
+    public long getFilesSeen() {
+        return filesSeen;
+    }
+
+    public long getFilesIndexed() {
+        return filesIndexed;
+    }
+
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getDocsPerSecond() {
+        return docsPerSecond;
+    }
+
+    public double getMegaBytesPerSecond() {
+        return megaBytesPerSecond;
+    }
+
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlerProgressDTO{" +
+            "repositoryName='" + repositoryName + '\'' +
+            ", phase=" + phase +
+            ", filesSeen=" + filesSeen +
+            ", filesIndexed=" + filesIndexed +
+            ", totalFiles=" + totalFiles +
+            ", failures=" + failures +
+            "}";
+    }
+}
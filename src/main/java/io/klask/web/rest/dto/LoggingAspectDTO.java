@@ -0,0 +1,54 @@
+package io.klask.web.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import io.klask.aop.logging.LoggingAspect;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A DTO representing the mode of the LoggingAspect and its sample rate
+ */
+public class LoggingAspectDTO {
+
+    @NotNull
+    private LoggingAspect.Mode mode;
+
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double sampleRate;
+
+    public LoggingAspectDTO(LoggingAspect loggingAspect) {
+        this.mode = loggingAspect.getMode();
+        this.sampleRate = loggingAspect.getSampleRate();
+    }
+
+    @JsonCreator
+    public LoggingAspectDTO() {
+    }
+
+    public LoggingAspect.Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(LoggingAspect.Mode mode) {
+        this.mode = mode;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "LoggingAspectDTO{" +
+            "mode=" + mode +
+            ", sampleRate=" + sampleRate +
+            '}';
+    }
+}
@@ -0,0 +1,52 @@
+package io.klask.web.rest.dto;
+
+import io.klask.domain.File;
+
+import java.util.List;
+
+/**
+ * A DTO representing one page of search results with the version, project and extension facets of the query
+ */
+public class SearchResultDTO {
+
+    private List<File> files;
+
+    private List<VersionDTO> versions;
+
+    private List<ProjectDTO> projects;
+
+    private List<ExtensionDTO> extensions;
+
+    public SearchResultDTO(List<File> files, List<VersionDTO> versions, List<ProjectDTO> projects, List<ExtensionDTO> extensions) {
+        this.files = files;
+        this.versions = versions;
+        this.projects = projects;
+        this.extensions = extensions;
+    }
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public List<VersionDTO> getVersions() {
+        return versions;
+    }
+
+    public List<ProjectDTO> getProjects() {
+        return projects;
+    }
+
+    public List<ExtensionDTO> getExtensions() {
+        return extensions;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResultDTO{" +
+            "files=" + files.size() +
+            ", versions=" + versions.size() +
+            ", projects=" + projects.size() +
+            ", extensions=" + extensions.size() +
+            "}";
+    }
+}
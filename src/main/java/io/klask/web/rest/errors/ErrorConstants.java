@@ -7,6 +7,8 @@ public final class ErrorConstants {
     public static final String ERR_VALIDATION = "error.validation";
     public static final String ERR_METHOD_NOT_SUPPORTED = "error.methodNotSupported";
     public static final String ERR_INTERNAL_SERVER_ERROR = "error.internalServerError";
+    public static final String ERR_EXPENSIVE_WILDCARD = "error.expensiveWildcard";
+    public static final String ERR_EXPENSIVE_QUERY = "error.expensiveQuery";
 
     private ErrorConstants() {
     }
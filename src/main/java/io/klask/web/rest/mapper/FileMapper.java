@@ -74,4 +74,34 @@ public class FileMapper {
         }
 
     }
+
+    /**
+     * the media type of the raw content, derived from the mapping of getMappingContentType.
+     * Markup and scripts are sent as text, so a raw file is never rendered or executed by the browser
+     *
+     * @param extension
+     * @return
+     */
+    public static String getMediaType(String extension) {
+        switch (getMappingContentType(extension)) {
+            case "java":
+                return "text/x-java-source";
+            case "markdown":
+                return "text/markdown";
+            case "python":
+                return "text/x-python";
+            case "json":
+                return "application/json";
+            case "yaml":
+                return "text/x-yaml";
+            case "sql":
+                return "text/x-sql";
+            case "css":
+                return "text/css";
+            case "bash":
+                return "text/x-sh";
+            default:
+                return "text/plain";
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package io.klask.web.rest.util;
 
+import io.klask.repository.search.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -14,9 +15,24 @@ import java.net.URLEncoder;
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">Github API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ * For the deep pagination, the opaque cursor of the next page is returned in the X-Next-Cursor header
+ * and can be sent back with the cursor parameter.
+ * The time spent in elasticsearch for the page is returned in the X-Search-Took header (ms), so the clients
+ * and the load tests can separate it from the time spent in the application. A page served from the search cache
+ * has the X-Search-Cache header set to hit, and a took of 0.
+ * If the search stopped before counting all the results, the X-Terminated-Early header is set and the total
+ * is a lower bound.
  */
 public class PaginationUtil {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String SEARCH_TOOK_HEADER = "X-Search-Took";
+
+    public static final String TERMINATED_EARLY_HEADER = "X-Terminated-Early";
+
+    public static final String SEARCH_CACHE_HEADER = "X-Search-Cache";
+
     public static HttpHeaders generatePaginationHttpHeaders(Page<?> page, String baseUrl)
         throws URISyntaxException {
 
@@ -38,6 +54,9 @@ public class PaginationUtil {
         link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + ">; rel=\"last\",";
         link += "<" + generateUri(baseUrl, 0, page.getSize()) + ">; rel=\"first\"";
         headers.add(HttpHeaders.LINK, link);
+        addNextCursor(headers, page);
+        addSearchTook(headers, page);
+        addTerminatedEarly(headers, page);
         return headers;
     }
 
@@ -73,6 +92,30 @@ public class PaginationUtil {
         link += "<" + generateUri(baseUrl, lastPage, page.getSize()) + "&query=" + queryUrl + ">; rel=\"last\",";
         link += "<" + generateUri(baseUrl, 0, page.getSize()) + "&query=" + queryUrl + ">; rel=\"first\"";
         headers.add(HttpHeaders.LINK, link);
+        addNextCursor(headers, page);
+        addSearchTook(headers, page);
+        addTerminatedEarly(headers, page);
         return headers;
     }
+
+    private static void addTerminatedEarly(HttpHeaders headers, Page<?> page) {
+        if (page instanceof CursorPage && ((CursorPage<?>) page).isTerminatedEarly()) {
+            headers.add(TERMINATED_EARLY_HEADER, "true");
+        }
+    }
+
+    private static void addSearchTook(HttpHeaders headers, Page<?> page) {
+        if (page instanceof CursorPage && ((CursorPage<?>) page).getTook() >= 0) {
+            headers.add(SEARCH_TOOK_HEADER, Long.toString(((CursorPage<?>) page).getTook()));
+        }
+        if (page instanceof CursorPage && ((CursorPage<?>) page).isCached()) {
+            headers.add(SEARCH_CACHE_HEADER, "hit");
+        }
+    }
+
+    private static void addNextCursor(HttpHeaders headers, Page<?> page) {
+        if (page instanceof CursorPage && ((CursorPage<?>) page).getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, ((CursorPage<?>) page).getNextCursor());
+        }
+    }
 }
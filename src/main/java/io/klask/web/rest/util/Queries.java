@@ -1,8 +1,13 @@
 package io.klask.web.rest.util;
 
+import io.klask.config.Constants;
+import org.apache.lucene.queryparser.classic.QueryParser;
 import org.elasticsearch.action.search.SearchAction;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
@@ -12,11 +17,38 @@ import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilde
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Created by jeremie on 27/06/16.
  */
 public class Queries {
 
+    // prefix of a query on the declarations of symbols
+    public static final String DEFINITION_PREFIX = "def:";
+
+    // the default fields of the query_string, with their boost
+    private static final Map<String, Float> DEFAULT_FIELDS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_FIELDS.put("name", 3f);
+        DEFAULT_FIELDS.put("content", null);
+        DEFAULT_FIELDS.put("path", null);
+        DEFAULT_FIELDS.put("version", null);
+        DEFAULT_FIELDS.put("project", null);
+        DEFAULT_FIELDS.put("extension", null);
+    }
+
+    // the characters and the operators of the lucene syntax
+    private static final String SYNTAX_CHARACTERS = "+-!(){}[]^\"~*?:\\/&|";
+
+    private static final Set<String> SYNTAX_OPERATORS = new HashSet<>(Arrays.asList("AND", "OR", "NOT"));
+
     public static QueryBuilder constructQuery(String query) {
         return new NativeSearchQueryBuilder()
             .withQuery(
@@ -35,6 +67,19 @@ public class Queries {
     }
 
 
+    /**
+     * construct a phrase query on the content.code field, which keeps the punctuation and the operators.
+     * The snippet is analyzed with the same code analyzer, so "a.b()" or "foo_bar(" match only this exact
+     * sequence of tokens, whatever the whitespaces between them
+     *
+     * @param phrase
+     * @return
+     */
+    public static NativeSearchQueryBuilder constructPhraseQueryBuilder(String phrase) {
+        return new NativeSearchQueryBuilder()
+            .withQuery(QueryBuilders.matchPhraseQuery("content.code", phrase));
+    }
+
     public static SearchRequestBuilder constructSearchRequestBuilder(String query, Pageable p, int numberOfFragments, Client client) {
 
         return new SearchRequestBuilder(client, SearchAction.INSTANCE)
@@ -77,22 +122,219 @@ public class Queries {
     }
 
     /**
-     * construct the only query used by all
+     * @param query
+     * @return true if the query looks for the definition of a symbol, with the "def:" prefix
+     */
+    public static boolean isDefinitionQuery(String query) {
+        return query != null && query.startsWith(DEFINITION_PREFIX) && query.length() > DEFINITION_PREFIX.length();
+    }
+
+    /**
+     * the query to highlight the lines of the content where the symbol of a "def:" query appears,
+     * because the symbols field itself has nothing to highlight
      *
+     * @param query a definition query
+     * @return a match query, or a wildcard query to use with the plain highlighter if the symbol has wildcards
+     * @throws io.klask.web.rest.errors.CustomParameterizedException if the wildcards of the symbol are too expensive
+     */
+    public static QueryBuilder constructDefinitionHighlightQuery(String query) {
+        String symbol = definitionSymbol(query);
+        if (isWildcardSymbol(symbol)) {
+            analyzeSymbol(symbol);
+            return QueryBuilders.wildcardQuery("content", symbol.toLowerCase(Locale.ROOT));
+        }
+        return QueryBuilders.matchQuery("content", symbol);
+    }
+
+    /**
+     * @param query a definition query
+     * @return true if the symbol of the definition query has wildcards, which the plain highlighter should expand
+     */
+    public static boolean isWildcardDefinitionQuery(String query) {
+        return isWildcardSymbol(definitionSymbol(query));
+    }
+
+    /**
+     * the symbol of "def:Name other terms" is "Name"
+     */
+    private static String definitionSymbol(String query) {
+        return query.substring(DEFINITION_PREFIX.length()).trim().split("\\s+", 2)[0];
+    }
+
+    private static boolean isWildcardSymbol(String symbol) {
+        return symbol.contains("*") || symbol.contains("?");
+    }
+
+    /**
+     * guard the wildcards of a symbol like the ones of a query, the other special characters of the symbol
+     * are escaped so they are not parsed as a syntax
+     */
+    private static void analyzeSymbol(String symbol) {
+        QueryAnalysis.analyze(QueryParser.escape(symbol).replace("\\*", "*").replace("\\?", "?"));
+    }
+
+    /**
      * @param query
+     * @return true if leading wildcards of the query are searched on the trigrams of the content, which has
+     * nothing to highlight
+     */
+    public static boolean isTrigramQuery(String query) {
+        return !StringUtils.isEmpty(query) && !isDefinitionQuery(query)
+            && !QueryAnalysis.analyze(query).getTrigramTerms().isEmpty();
+    }
+
+    /**
+     * the query to highlight the content and the path with the wildcards of a trigram query. It should be used
+     * with the plain highlighter, which expands the wildcards on the terms of each hit, not on the whole index
+     *
+     * @param query a trigram query
      * @return
      */
+    public static QueryBuilder constructWildcardHighlightQuery(String query) {
+        return QueryBuilders.queryStringQuery(query)
+            .allowLeadingWildcard(true)
+            .defaultOperator(QueryStringQueryBuilder.Operator.OR)
+            .maxDeterminizedStates(Constants.MAX_DETERMINIZED_STATES)
+            .field("content").field("path");
+    }
+
+    /**
+     * @param query
+     * @return true if the query is only made of words, without any character or operator of the lucene syntax
+     */
+    public static boolean isSimpleQuery(String query) {
+        if (StringUtils.isEmpty(query) || query.trim().isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < query.length(); i++) {
+            if (SYNTAX_CHARACTERS.indexOf(query.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        for (String word : query.trim().split("\\s+")) {
+            if (SYNTAX_OPERATORS.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the query of a simple query : each word must match one of the default fields, the best field gives the
+     * score. This is what the query_string builds with the AND operator and dis_max, without parsing the query,
+     * looking for wildcards or rewriting multi term queries
+     *
+     * @param query a simple query
+     * @return
+     */
+    private static QueryBuilder simpleQueryBuilder(String query) {
+        BoolQueryBuilder words = QueryBuilders.boolQuery();
+        for (String word : query.trim().split("\\s+")) {
+            MultiMatchQueryBuilder multiMatch = QueryBuilders.multiMatchQuery(word)
+                .type(MultiMatchQueryBuilder.Type.BEST_FIELDS)
+                .operator(MatchQueryBuilder.Operator.AND);
+            DEFAULT_FIELDS.forEach((field, boost) -> {
+                if (boost == null) {
+                    multiMatch.field(field);
+                } else {
+                    multiMatch.field(field, boost);
+                }
+            });
+            words.must(multiMatch);
+        }
+        return words;
+    }
+
+    /**
+     * "def:Name other terms" looks for Name in the symbols field (wildcards allowed), and for the
+     * other terms with the standard query. The symbols field is small so this lookup is fast
+     *
+     * @param query a definition query
+     * @return
+     */
+    private static QueryBuilder definitionQueryBuilder(String query) {
+        String[] parts = query.substring(DEFINITION_PREFIX.length()).trim().split("\\s+", 2);
+        String symbol = parts[0].toLowerCase(Locale.ROOT);
+        QueryBuilder symbolQuery;
+        if (isWildcardSymbol(symbol)) {
+            analyzeSymbol(parts[0]);
+            symbolQuery = QueryBuilders.wildcardQuery("symbols", symbol);
+        } else {
+            symbolQuery = QueryBuilders.termQuery("symbols", symbol);
+        }
+        BoolQueryBuilder definition = QueryBuilders.boolQuery().filter(symbolQuery);
+        if (parts.length > 1) {
+            definition.must(queryBuilder(parts[1]));
+        }
+        return definition;
+    }
+
+    /**
+     * construct the only query used by all. A simple query is searched with multi_match queries, and the leading
+     * wildcards on the content are searched on its trigrams, see QueryAnalysis
+     *
+     * @param query
+     * @return
+     * @throws io.klask.web.rest.errors.CustomParameterizedException if the wildcards of the query are too expensive
+     */
     private static QueryBuilder queryBuilder(String query) {
 
         if (StringUtils.isEmpty(query)) {
             return QueryBuilders.matchAllQuery();
         }
 
+        if (isDefinitionQuery(query)) {
+            return definitionQueryBuilder(query);
+        }
 
-        return QueryBuilders.queryStringQuery(query)
+        if (isSimpleQuery(query)) {
+            return simpleQueryBuilder(query);
+        }
+
+        QueryAnalysis analysis = QueryAnalysis.analyze(query);
+        if (analysis.getTrigramTerms().isEmpty()) {
+            return queryStringQuery(query, true);
+        }
+        BoolQueryBuilder rewritten = QueryBuilders.boolQuery();
+        if (analysis.getQuery() != null) {
+            rewritten.must(queryStringQuery(analysis.getQuery(), true));
+        }
+        for (QueryAnalysis.WildcardTerm term : analysis.getTrigramTerms()) {
+            BoolQueryBuilder trigrams = QueryBuilders.boolQuery();
+            //the trigrams of a literal are consecutive in the content, at consecutive positions
+            term.getLiterals().forEach(literal -> trigrams.filter(QueryBuilders.matchPhraseQuery("content.trigram", literal)));
+            QueryBuilder content = QueryBuilders.constantScoreQuery(trigrams);
+            //on the default fields, the other fields are still searched with the wildcard
+            rewritten.must(term.getField() == null ?
+                QueryBuilders.boolQuery().should(content).should(queryStringQuery(term.getValue(), false)) :
+                content);
+        }
+        return rewritten;
+    }
+
+    /**
+     * the query_string on the default fields, the automaton of its wildcards is bounded, and all the terms they
+     * expand to are searched by the default constant score rewrite
+     *
+     * @param query
+     * @param withContent false to search all the default fields but the content
+     * @return
+     */
+    private static QueryStringQueryBuilder queryStringQuery(String query, boolean withContent) {
+        QueryStringQueryBuilder queryString = QueryBuilders.queryStringQuery(query)
             .allowLeadingWildcard(true)
             .defaultOperator(QueryStringQueryBuilder.Operator.AND)
-            .field("name^3")
-            .field("content").field("path").field("version").field("project").field("extension");
+            .maxDeterminizedStates(Constants.MAX_DETERMINIZED_STATES);
+        DEFAULT_FIELDS.forEach((field, boost) -> {
+            if (!withContent && "content".equals(field)) {
+                return;
+            }
+            if (boost == null) {
+                queryString.field(field);
+            } else {
+                queryString.field(field, boost);
+            }
+        });
+        return queryString;
     }
 }
@@ -0,0 +1,380 @@
+package io.klask.web.rest.util;
+
+import io.klask.config.Constants;
+import io.klask.web.rest.errors.CustomParameterizedException;
+import io.klask.web.rest.errors.ErrorConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cost of the wildcards of a query_string, analyzed before the query is sent to elasticsearch.
+ * <p>
+ * A wildcard at the end of a term (foo*) only walks the terms of the prefix. A wildcard at the beginning (*foo)
+ * walks the whole dictionary of the field on each shard, which is huge for the content. So a wildcard at both ends
+ * on the content (*foo*) is rewritten to a filter on the content.trigram field : each literal part is a phrase of its
+ * trigrams, so the trigrams must follow each other in the content as in the literal. It is rewritten only if it's a
+ * required term at the top level of the query (not in a group, not next to a OR, not negated) with a literal part of
+ * at least 3 characters. The trigrams can't tell where a token starts or ends, so an anchored leading wildcard
+ * (*foo, *foo?) is kept in the query : *Service must not match ServiceImpl.
+ * </p>
+ * Each wildcard has a cost, a query over Constants.MAX_QUERY_COST is rejected before reaching elasticsearch.
+ * A leading wildcard on the content without 3 consecutive characters (*a*) is always rejected.
+ */
+public final class QueryAnalysis {
+
+    //foo*
+    private static final int PREFIX_COST = 1;
+    //f*, the prefix is shorter than MIN_PREFIX
+    private static final int SHORT_PREFIX_COST = 3;
+    private static final int MIN_PREFIX = 2;
+    //*foo* rewritten on the trigrams
+    private static final int TRIGRAM_COST = 1;
+    //*foo or *foo* searched in the dictionary of the fields
+    private static final int LEADING_COST = 5;
+
+    private static final int GRAM_SIZE = 3;
+
+    private static final String CONTENT_FIELD = "content";
+
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList("AND", "OR", "NOT", "&&", "||"));
+
+    private final String query;
+
+    private final List<WildcardTerm> trigramTerms;
+
+    private final int cost;
+
+    private QueryAnalysis(String query, List<WildcardTerm> trigramTerms, int cost) {
+        this.query = query;
+        this.trigramTerms = trigramTerms;
+        this.cost = cost;
+    }
+
+    /**
+     * analyze the wildcards of the query
+     *
+     * @param query a query_string
+     * @return the analysis
+     * @throws CustomParameterizedException if a wildcard can't be searched or if the query is too expensive
+     */
+    public static QueryAnalysis analyze(String query) {
+        List<Token> tokens = tokenize(query);
+        List<WildcardTerm> trigramTerms = new ArrayList<>();
+        Set<Token> removed = new HashSet<>();
+        int cost = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.type != TokenType.TERM) {
+                continue;
+            }
+            WildcardTerm term = WildcardTerm.parse(token.text);
+            if (term == null) {
+                continue;
+            }
+            if (term.firstWildcard > 0) {
+                cost += term.firstWildcard < MIN_PREFIX ? SHORT_PREFIX_COST : PREFIX_COST;
+            } else if (term.field != null && !CONTENT_FIELD.equals(term.field)) {
+                cost += LEADING_COST;
+            } else if (term.trigrams.isEmpty()) {
+                throw new CustomParameterizedException(ErrorConstants.ERR_EXPENSIVE_WILDCARD, term.value);
+            } else if (term.unanchored && isRequired(tokens, i, term)) {
+                cost += TRIGRAM_COST;
+                trigramTerms.add(term);
+                removed.add(token);
+                //foo AND *bar* : the AND goes with the term
+                if (isOperator(tokens, i - 1, "AND", "&&")) {
+                    removed.add(tokens.get(i - 1));
+                } else if (isOperator(tokens, i + 1, "AND", "&&")) {
+                    removed.add(tokens.get(i + 1));
+                }
+            } else {
+                cost += LEADING_COST;
+            }
+        }
+        if (cost > Constants.MAX_QUERY_COST) {
+            throw new CustomParameterizedException(ErrorConstants.ERR_EXPENSIVE_QUERY,
+                String.valueOf(cost), String.valueOf(Constants.MAX_QUERY_COST));
+        }
+        if (trigramTerms.isEmpty()) {
+            return new QueryAnalysis(query, trigramTerms, cost);
+        }
+
+        StringBuilder remaining = new StringBuilder();
+        int from = 0;
+        for (Token token : tokens) {
+            if (removed.contains(token)) {
+                remaining.append(query, from, token.start);
+                from = token.end;
+            }
+        }
+        remaining.append(query.substring(from));
+        String rest = remaining.toString().trim();
+        return new QueryAnalysis(rest.isEmpty() ? null : rest, trigramTerms, cost);
+    }
+
+    /**
+     * @return the query without the terms rewritten on the trigrams, null if nothing else remains
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the leading wildcards to search on the content.trigram field, required by the query
+     */
+    public List<WildcardTerm> getTrigramTerms() {
+        return trigramTerms;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * a required term is at the top level, not negated and not next to a OR
+     */
+    private static boolean isRequired(List<Token> tokens, int i, WildcardTerm term) {
+        return tokens.get(i).depth == 0 && term.sign != '-' && term.sign != '!'
+            && !isOperator(tokens, i - 1, "NOT", "OR", "||")
+            && !isOperator(tokens, i + 1, "OR", "||");
+    }
+
+    private static boolean isOperator(List<Token> tokens, int i, String... operators) {
+        return i >= 0 && i < tokens.size() && tokens.get(i).type == TokenType.OPERATOR
+            && Arrays.asList(operators).contains(tokens.get(i).text);
+    }
+
+    /**
+     * split the query in terms, operators and the rest (groups, phrases, ranges, fields of a group)
+     */
+    private static List<Token> tokenize(String query) {
+        List<Token> tokens = new ArrayList<>();
+        int depth = 0;
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.OTHER, i, i + 1, "(", depth++));
+                i++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+                tokens.add(new Token(TokenType.OTHER, i, i + 1, ")", depth));
+                i++;
+            } else if (c == '"' || c == '[' || c == '{') {
+                int end = skipTo(query, i + 1, c == '"' ? "\"" : "]}");
+                tokens.add(new Token(TokenType.OTHER, i, end, query.substring(i, end), depth));
+                i = end;
+            } else {
+                int end = skipWord(query, i);
+                String word = query.substring(i, end);
+                TokenType type = OPERATORS.contains(word) ? TokenType.OPERATOR
+                    : word.endsWith(":") && !word.endsWith("\\:") ? TokenType.OTHER : TokenType.TERM;
+                tokens.add(new Token(type, i, end, word, depth));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipWord(String query, int i) {
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (Character.isWhitespace(c) || "()\"[{".indexOf(c) >= 0) {
+                break;
+            }
+            i++;
+        }
+        return Math.min(i, query.length());
+    }
+
+    private static int skipTo(String query, int i, String closing) {
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            i++;
+            if (closing.indexOf(c) >= 0) {
+                break;
+            }
+        }
+        return Math.min(i, query.length());
+    }
+
+    private enum TokenType {
+        TERM,
+        OPERATOR,
+        OTHER
+    }
+
+    private static final class Token {
+
+        private final TokenType type;
+        private final int start;
+        private final int end;
+        private final String text;
+        private final int depth;
+
+        private Token(TokenType type, int start, int end, String text, int depth) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * a term of the query with a wildcard
+     */
+    public static final class WildcardTerm {
+
+        private final char sign;
+
+        private final String field;
+
+        private final String value;
+
+        //position of the first wildcard in the unescaped value
+        private final int firstWildcard;
+
+        //the value starts and ends with a '*' : its literals may be anywhere in a token
+        private final boolean unanchored;
+
+        private final Set<String> trigrams;
+
+        private final List<String> literals;
+
+        private WildcardTerm(char sign, String field, String value, int firstWildcard, boolean unanchored,
+                             Set<String> trigrams, List<String> literals) {
+            this.sign = sign;
+            this.field = field;
+            this.value = value;
+            this.firstWildcard = firstWildcard;
+            this.unanchored = unanchored;
+            this.trigrams = trigrams;
+            this.literals = literals;
+        }
+
+        /**
+         * @param text a term of the query : [+-][field:]value[^boost|~fuzziness]
+         * @return the term, or null if it has no wildcard or if it's only made of '*'
+         */
+        private static WildcardTerm parse(String text) {
+            int start = 0;
+            char sign = 0;
+            if (!text.isEmpty() && "+-!".indexOf(text.charAt(0)) >= 0) {
+                sign = text.charAt(0);
+                start = 1;
+            }
+            String field = null;
+            int colon = indexOfUnescaped(text, ":", start);
+            if (colon > start) {
+                field = text.substring(start, colon);
+                start = colon + 1;
+            }
+            int end = indexOfUnescaped(text, "^~", start);
+            String value = text.substring(start, end < 0 ? text.length() : end);
+
+            int firstWildcard = -1;
+            boolean onlyStars = true;
+            boolean endsWithStar = false;
+            List<String> literals = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int position = 0;
+            for (int i = 0; i < value.length(); i++, position++) {
+                char c = value.charAt(i);
+                endsWithStar = c == '*';
+                if (c == '\\' && i + 1 < value.length()) {
+                    literal.append(value.charAt(++i));
+                    onlyStars = false;
+                } else if (c == '*' || c == '?') {
+                    if (firstWildcard < 0) {
+                        firstWildcard = position;
+                    }
+                    onlyStars &= c == '*';
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                } else {
+                    literal.append(c);
+                    onlyStars = false;
+                }
+            }
+            literals.add(literal.toString());
+            if (firstWildcard < 0 || onlyStars) {
+                return null;
+            }
+
+            Set<String> trigrams = new LinkedHashSet<>();
+            List<String> longLiterals = new ArrayList<>();
+            for (String part : literals) {
+                String lower = part.toLowerCase(Locale.ROOT);
+                for (int i = 0; i + GRAM_SIZE <= lower.length(); i++) {
+                    trigrams.add(lower.substring(i, i + GRAM_SIZE));
+                }
+                if (lower.length() >= GRAM_SIZE) {
+                    longLiterals.add(lower);
+                }
+            }
+            boolean unanchored = value.charAt(0) == '*' && endsWithStar;
+            return new WildcardTerm(sign, field, value, firstWildcard, unanchored, Collections.unmodifiableSet(trigrams),
+                Collections.unmodifiableList(longLiterals));
+        }
+
+        private static int indexOfUnescaped(String text, String chars, int from) {
+            for (int i = from; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (chars.indexOf(c) >= 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the field of the term, null for the default fields of the query
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * @return the term as written in the query, without its field
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return the lowercase trigrams of the literal parts of the term
+         */
+        public Set<String> getTrigrams() {
+            return trigrams;
+        }
+
+        /**
+         * @return the lowercase literal parts of the term with at least 3 characters, each one is searched as a
+         * phrase of its trigrams
+         */
+        public List<String> getLiterals() {
+            return literals;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.{File, PrintWriter}
+import java.net.{HttpURLConnection, URL}
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import _root_.io.gatling.core.scenario.Simulation
+import ch.qos.logback.classic.LoggerContext
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import org.slf4j.LoggerFactory
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+import scala.io.Source
+
+/**
+ * Load test of the search : the queries of a query log are replayed against /api/_search/files (searchFiles)
+ * and /api/files (customfindAll) by a fixed number of users during a fixed time.
+ *
+ * The query log is src/test/gatling/data/search-queries.csv. The filters take several values separated by '|'
+ * and the sort is written 'name;asc'.
+ *
+ * Before the run, the index is seeded with the sources of klask (a FILE_SYSTEM repository on seedPath, then a
+ * crawl), so the test needs no network. -Dseed=false keeps the current index.
+ *
+ * Besides the Gatling report, the p50/p95/p99 of the response time, of the time spent in elasticsearch
+ * (X-Search-Took header) and of the difference (the servlet overhead) are printed and written in
+ * target/gatling/search-latency.json. The query log is replayed in a loop, so most of the searches are served
+ * from the search cache (X-Search-Cache header) : the took and the overhead only count the cache misses, the
+ * response time of the hits is reported apart.
+ *
+ * mvn gatling:execute -Dgatling.simulationClass=SearchGatlingTest -Dusers=20 -Dduration=120
+ */
+class SearchGatlingTest extends Simulation {
+
+    val context: LoggerContext = LoggerFactory.getILoggerFactory.asInstanceOf[LoggerContext]
+    // Log all HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("TRACE"))
+    // Log failed HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("DEBUG"))
+
+    val baseURL = Option(System.getProperty("baseURL")) getOrElse """http://127.0.0.1:8080"""
+    val users = Integer.getInteger("users", 10).intValue
+    val duration = Integer.getInteger("duration", 60).intValue
+    val seed = Option(System.getProperty("seed")).forall(_.toBoolean)
+    val seedPath = Option(System.getProperty("seedPath")) getOrElse new File("src/main").getAbsolutePath
+    val seedRepository = "gatling-search-seed"
+
+    //response time, took and cache hit of each request, by endpoint
+    val latencies = Map(
+        "search" -> new ConcurrentLinkedQueue[(Long, Long, Boolean)](),
+        "all" -> new ConcurrentLinkedQueue[(Long, Long, Boolean)]()
+    )
+
+    val httpConf = http
+        .baseURL(baseURL)
+        .acceptHeader("*/*")
+        .acceptEncodingHeader("gzip, deflate")
+        .acceptLanguageHeader("fr,fr-fr;q=0.8,en-us;q=0.5,en;q=0.3")
+        .connection("keep-alive")
+        .userAgentHeader("Mozilla/5.0 (Macintosh; Intel Mac OS X 10.10; rv:33.0) Gecko/20100101 Firefox/33.0")
+
+    val headers_http_authentication = Map(
+        "Content-Type" -> """application/json""",
+        "Accept" -> """application/json"""
+    )
+
+    val headers_http_authenticated = Map(
+        "Accept" -> """application/json""",
+        "Authorization" -> "${access_token}"
+    )
+
+    val queries = csv("search-queries.csv").convert {
+        case ("version" | "project" | "extension", value) => value.split('|').filter(_.nonEmpty).toSeq
+        case ("sort", value) => value.split('|').filter(_.nonEmpty).map(_.replace(';', ',')).toSeq
+    }.circular
+
+    before {
+        if (seed) {
+            seedIndex()
+        }
+    }
+
+    after {
+        report()
+    }
+
+    val scn = scenario("Replay the search query log")
+        .exec(http("Authentication")
+        .post("/api/authenticate")
+        .headers(headers_http_authentication)
+        .body(StringBody("""{"username":"admin", "password":"admin"}""")).asJSON
+        .check(header.get("Authorization").saveAs("access_token"))).exitHereIfFailed
+        .during(duration seconds) {
+            feed(queries)
+            .doIfEqualsOrElse("${endpoint}", "search") {
+                exec(http("Search files")
+                .get("/api/_search/files")
+                .queryParam("query", "${query}")
+                .multivaluedQueryParam("version", "${version}")
+                .multivaluedQueryParam("project", "${project}")
+                .multivaluedQueryParam("extension", "${extension}")
+                .queryParam("page", "${page}")
+                .queryParam("size", "${size}")
+                .multivaluedQueryParam("sort", "${sort}")
+                .headers(headers_http_authenticated)
+                .check(status.is(200))
+                .check(header("X-Search-Took").saveAs("took"))
+                .check(header("X-Search-Cache").optional.saveAs("cache"))
+                .check(responseTimeInMillis.saveAs("responseTime")))
+            } {
+                exec(http("Get all files")
+                .get("/api/files")
+                .multivaluedQueryParam("version", "${version}")
+                .multivaluedQueryParam("project", "${project}")
+                .multivaluedQueryParam("extension", "${extension}")
+                .queryParam("page", "${page}")
+                .queryParam("size", "${size}")
+                .multivaluedQueryParam("sort", "${sort}")
+                .headers(headers_http_authenticated)
+                .check(status.is(200))
+                .check(header("X-Search-Took").saveAs("took"))
+                .check(responseTimeInMillis.saveAs("responseTime")))
+            }
+            .exec(session => {
+                if (session.contains("took")) {
+                    latencies(session("endpoint").as[String])
+                        .add((session("responseTime").as[Long], session("took").as[String].toLong, session.contains("cache")))
+                }
+                session.remove("took").remove("cache")
+            })
+        }
+
+    setUp(
+        scenario("Users").exec(scn).inject(atOnceUsers(users))
+    ).protocols(httpConf)
+
+    /**
+     * index the sources of klask in a FILE_SYSTEM repository, and wait the end of the crawl
+     */
+    def seedIndex(): Unit = {
+        val (_, _, token) = call("POST", "/api/authenticate", None, Some("""{"username":"admin", "password":"admin"}"""))
+        val (_, repositories, _) = call("GET", "/api/repositories?size=1000", token, None)
+        if (!repositories.contains("\"" + seedRepository + "\"")) {
+            val path = seedPath.replace("\\", "/")
+            call("POST", "/api/repositories", token,
+                Some(s"""{"name":"$seedRepository", "path":"$path", "type":"FILE_SYSTEM"}"""))
+        }
+        call("POST", "/api/crawler", token, None)
+        while (call("GET", "/api/crawler", token, None)._2.trim == "true") {
+            Thread.sleep(1000)
+        }
+        println(s"index seeded with $seedPath")
+    }
+
+    def call(method: String, path: String, token: Option[String], body: Option[String]): (Int, String, Option[String]) = {
+        val connection = new URL(baseURL + path).openConnection().asInstanceOf[HttpURLConnection]
+        connection.setRequestMethod(method)
+        connection.setRequestProperty("Accept", "application/json")
+        token.foreach(connection.setRequestProperty("Authorization", _))
+        body.foreach { content =>
+            connection.setDoOutput(true)
+            connection.setRequestProperty("Content-Type", "application/json")
+            connection.getOutputStream.write(content.getBytes(StandardCharsets.UTF_8))
+        }
+        val status = connection.getResponseCode
+        val stream = if (status < 400) connection.getInputStream else connection.getErrorStream
+        val response = if (stream == null) "" else Source.fromInputStream(stream, "UTF-8").mkString
+        (status, response, Option(connection.getHeaderField("Authorization")))
+    }
+
+    def percentile(sorted: IndexedSeq[Long], p: Double): Long =
+        if (sorted.isEmpty) 0L else sorted(math.min(sorted.size - 1, math.ceil(p / 100 * sorted.size).toInt - 1).max(0))
+
+    def report(): Unit = {
+        val endpoints = latencies.map { case (endpoint, values) =>
+            val samples = values.asScala.toIndexedSeq
+            val (hits, misses) = samples.partition(_._3)
+            val metrics = Seq(
+                "responseTime" -> samples.map(_._1).sorted,
+                "cacheHitResponseTime" -> hits.map(_._1).sorted,
+                "took" -> misses.map(_._2).sorted,
+                "overhead" -> misses.map(sample => sample._1 - sample._2).sorted
+            ).map { case (name, sorted) =>
+                println(f"$endpoint%-6s $name%-20s p50=${percentile(sorted, 50)}%5d ms p95=${percentile(sorted, 95)}%5d ms p99=${percentile(sorted, 99)}%5d ms")
+                s""""$name":{"p50":${percentile(sorted, 50)},"p95":${percentile(sorted, 95)},"p99":${percentile(sorted, 99)}}"""
+            }
+            s""""$endpoint":{"requests":${samples.size},"cacheHits":${hits.size},${metrics.mkString(",")}}"""
+        }
+        val output = new File("target/gatling/search-latency.json")
+        output.getParentFile.mkdirs()
+        val writer = new PrintWriter(output, "UTF-8")
+        try {
+            writer.println(s"""{"users":$users,"duration":$duration,${endpoints.mkString(",")}}""")
+        } finally {
+            writer.close()
+        }
+    }
+}
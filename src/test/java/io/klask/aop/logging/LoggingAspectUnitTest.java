@@ -0,0 +1,65 @@
+package io.klask.aop.logging;
+
+import com.codahale.metrics.MetricRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the LoggingAspect.
+ *
+ * @see LoggingAspect
+ */
+public class LoggingAspectUnitTest {
+
+    private static final String TIMER = "klask.aspect.io.klask.service.FooService.toString";
+
+    private MetricRegistry metricRegistry;
+
+    private ProceedingJoinPoint joinPoint;
+
+    @Before
+    public void setup() throws Throwable {
+        metricRegistry = new MetricRegistry();
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(signature.getDeclaringTypeName()).thenReturn("io.klask.service.FooService");
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenReturn("result");
+    }
+
+    @Test
+    public void testSamplingRecordsTheLatency() throws Throwable {
+        LoggingAspect aspect = aspect(LoggingAspect.Mode.SAMPLING, 1d);
+
+        assertThat(aspect.logAround(joinPoint)).isEqualTo("result");
+        assertThat(aspect.logAround(joinPoint)).isEqualTo("result");
+        assertThat(metricRegistry.getTimers().get(TIMER).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testModeChangedAtRuntime() throws Throwable {
+        LoggingAspect aspect = aspect(LoggingAspect.Mode.SAMPLING, 0d);
+        assertThat(aspect.logAround(joinPoint)).isEqualTo("result");
+        assertThat(metricRegistry.getTimers()).doesNotContainKey(TIMER);
+
+        aspect.setSampleRate(1d);
+        aspect.logAround(joinPoint);
+        aspect.setMode(LoggingAspect.Mode.DEBUG);
+        aspect.logAround(joinPoint);
+        assertThat(metricRegistry.getTimers().get(TIMER).getCount()).isEqualTo(1);
+    }
+
+    private LoggingAspect aspect(LoggingAspect.Mode mode, double sampleRate) {
+        LoggingAspect aspect = new LoggingAspect(mode, sampleRate);
+        ReflectionTestUtils.setField(aspect, "metricRegistry", metricRegistry);
+        return aspect;
+    }
+}
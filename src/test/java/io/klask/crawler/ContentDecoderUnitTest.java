@@ -0,0 +1,52 @@
+package io.klask.crawler;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ContentDecoder.
+ *
+ * @see ContentDecoder
+ */
+public class ContentDecoderUnitTest {
+
+    @Test
+    public void testUtf8() {
+        ContentDecoder.Decoded decoded = ContentDecoder.decode("class Café {}".getBytes(StandardCharsets.UTF_8));
+        assertThat(decoded.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(decoded.getText()).isEqualTo("class Café {}");
+    }
+
+    @Test
+    public void testAscii() {
+        ContentDecoder.Decoded decoded = ContentDecoder.decode("class Foo {}".getBytes(StandardCharsets.US_ASCII));
+        assertThat(decoded.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(decoded.getText()).isEqualTo("class Foo {}");
+    }
+
+    @Test
+    public void testLatin1() {
+        // An invalid UTF-8 sequence is decoded as ISO-8859-1, never with replacement characters
+        ContentDecoder.Decoded decoded = ContentDecoder.decode("class Café {}".getBytes(StandardCharsets.ISO_8859_1));
+        assertThat(decoded.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(decoded.getText()).isEqualTo("class Café {}");
+    }
+
+    @Test
+    public void testByteOrderMark() {
+        ContentDecoder.Decoded utf8 = ContentDecoder.decode(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', 'b'});
+        assertThat(utf8.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(utf8.getText()).isEqualTo("ab");
+
+        ContentDecoder.Decoded utf16le = ContentDecoder.decode(new byte[]{(byte) 0xFF, (byte) 0xFE, 'a', 0, 'b', 0});
+        assertThat(utf16le.getCharset()).isEqualTo(StandardCharsets.UTF_16LE);
+        assertThat(utf16le.getText()).isEqualTo("ab");
+
+        ContentDecoder.Decoded utf16be = ContentDecoder.decode(new byte[]{(byte) 0xFE, (byte) 0xFF, 0, 'a', 0, 'b'});
+        assertThat(utf16be.getCharset()).isEqualTo(StandardCharsets.UTF_16BE);
+        assertThat(utf16be.getText()).isEqualTo("ab");
+    }
+}
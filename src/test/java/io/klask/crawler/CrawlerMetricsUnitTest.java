@@ -0,0 +1,81 @@
+package io.klask.crawler;
+
+import com.codahale.metrics.MetricRegistry;
+import io.klask.config.KlaskProperties;
+import io.klask.crawler.impl.FileSystemCrawler;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CrawlerMetrics, registered by a FileSystemCrawler run on a temporary directory.
+ *
+ * @see CrawlerMetrics
+ */
+public class CrawlerMetricsUnitTest {
+
+    private static final String PREFIX = "klask.crawler.file_system.metrics_test.";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MetricRegistry metricRegistry;
+
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    private FileSystemCrawler crawler;
+
+    @Before
+    public void setup() throws IOException {
+        Repository repository = new Repository();
+        repository.setId(1L);
+        repository.setName("metrics test");
+        repository.setType(RepositoryType.FILE_SYSTEM);
+        repository.setPath(folder.getRoot().getAbsolutePath());
+
+        KlaskProperties klaskProperties = new KlaskProperties();
+        klaskProperties.getCrawler().getExtensionsToRead().add("txt");
+
+        metricRegistry = new MetricRegistry();
+        elasticsearchTemplate = Mockito.mock(ElasticsearchTemplate.class, Mockito.RETURNS_DEEP_STUBS);
+        crawler = new FileSystemCrawler(repository, klaskProperties, null, elasticsearchTemplate, metricRegistry);
+    }
+
+    @Test
+    public void testMetricsOfACrawl() throws IOException {
+        // 6 bytes for 5 chars in UTF-8
+        Files.write(folder.newFile("accent.txt").toPath(), "héllo".getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.newFile("ascii.txt").toPath(), "foo bar".getBytes(StandardCharsets.UTF_8));
+        // only the name of a binary file is indexed
+        Files.write(folder.newFile("image.png").toPath(), new byte[]{1, 2, 3});
+
+        crawler.start();
+
+        assertThat(metricRegistry.getNames()).contains(
+            PREFIX + "read", PREFIX + "decode", PREFIX + "sha256", PREFIX + "contentHash", PREFIX + "document", PREFIX + "symbols",
+            PREFIX + "bulk.latency", PREFIX + "bulk.docs", PREFIX + "bulk.bytes",
+            PREFIX + "bulk.rejected", PREFIX + "bulk.errors");
+        assertThat(metricRegistry.timer(PREFIX + "read").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer(PREFIX + "decode").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer(PREFIX + "document").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.timer(PREFIX + "contentHash").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.timer(PREFIX + "bulk.latency").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.histogram(PREFIX + "bulk.docs").getSnapshot().getMax()).isEqualTo(3);
+        // the raw bytes of the contents, not their chars
+        assertThat(metricRegistry.histogram(PREFIX + "bulk.bytes").getSnapshot().getMax()).isEqualTo(13);
+        assertThat(metricRegistry.meter(PREFIX + "bulk.errors").getCount()).isEqualTo(0);
+        Mockito.verify(elasticsearchTemplate).bulkIndex(Mockito.anyListOf(IndexQuery.class));
+    }
+}
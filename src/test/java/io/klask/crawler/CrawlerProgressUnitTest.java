@@ -0,0 +1,74 @@
+package io.klask.crawler;
+
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CrawlerProgress.
+ *
+ * @see CrawlerProgress
+ */
+public class CrawlerProgressUnitTest {
+
+    private CrawlerProgress progress;
+
+    @Before
+    public void setup() {
+        Repository repository = new Repository();
+        repository.setId(1L);
+        repository.setName("klask");
+        repository.setType(RepositoryType.FILE_SYSTEM);
+        progress = new CrawlerProgress(repository);
+    }
+
+    @Test
+    public void testPhases() {
+        assertThat(progress.getPhase()).isEqualTo(CrawlerProgress.Phase.PENDING);
+        assertThat(progress.isRunning()).isFalse();
+        assertThat(progress.getElapsedMillis()).isEqualTo(0L);
+
+        progress.start();
+        assertThat(progress.getPhase()).isEqualTo(CrawlerProgress.Phase.COUNTING);
+        assertThat(progress.isRunning()).isTrue();
+        progress.setPhase(CrawlerProgress.Phase.INDEXING);
+        assertThat(progress.isRunning()).isTrue();
+
+        progress.finish(CrawlerProgress.Phase.FAILED);
+        assertThat(progress.getPhase()).isEqualTo(CrawlerProgress.Phase.FAILED);
+        assertThat(progress.isRunning()).isFalse();
+        assertThat(progress.getEndTime()).isGreaterThanOrEqualTo(progress.getStartTime());
+        assertThat(progress.getEtaSeconds()).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testCounters() {
+        progress.start();
+        assertThat(progress.getTotalFiles()).isEqualTo(-1L);
+        progress.addTotalFiles(3);
+        progress.addTotalFiles(2);
+        progress.addFileSeen(100);
+        progress.addFileSeen(50);
+        progress.addFilesIndexed(2);
+        progress.addFailures(1);
+
+        assertThat(progress.getTotalFiles()).isEqualTo(5L);
+        assertThat(progress.getFilesSeen()).isEqualTo(2L);
+        assertThat(progress.getBytesRead()).isEqualTo(150L);
+        assertThat(progress.getFilesIndexed()).isEqualTo(2L);
+        assertThat(progress.getFailures()).isEqualTo(1L);
+
+        // A new crawl resets the counters
+        progress.finish(CrawlerProgress.Phase.FINISHED);
+        progress.start();
+        assertThat(progress.getTotalFiles()).isEqualTo(-1L);
+        assertThat(progress.getFilesSeen()).isEqualTo(0L);
+        assertThat(progress.getBytesRead()).isEqualTo(0L);
+        assertThat(progress.getFilesIndexed()).isEqualTo(0L);
+        assertThat(progress.getFailures()).isEqualTo(0L);
+        assertThat(progress.getEndTime()).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,46 @@
+package io.klask.crawler;
+
+import com.codahale.metrics.MetricRegistry;
+import io.klask.config.KlaskProperties;
+import io.klask.crawler.impl.GitCrawler;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the GitCrawler.
+ *
+ * @see GitCrawler
+ */
+public class GitCrawlerUnitTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCloneFailureFailsTheCrawl() throws IOException {
+        Repository repository = new Repository();
+        repository.setId(1L);
+        repository.setName("missing");
+        repository.setType(RepositoryType.GIT);
+        repository.setPath(folder.getRoot().toURI() + "missing.git");
+
+        KlaskProperties klaskProperties = new KlaskProperties();
+        klaskProperties.getCrawler().setWorkingDirectory(folder.newFolder("work").getAbsolutePath());
+
+        GitCrawler crawler = new GitCrawler(repository, klaskProperties,
+            Mockito.mock(ElasticsearchTemplate.class, Mockito.RETURNS_DEEP_STUBS), new MetricRegistry());
+        crawler.start();
+
+        assertThat(crawler.getProgress().getPhase()).isEqualTo(CrawlerProgress.Phase.FAILED);
+        assertThat(crawler.getProgress().getFilesIndexed()).isEqualTo(0);
+    }
+}
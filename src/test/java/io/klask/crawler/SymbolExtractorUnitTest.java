@@ -0,0 +1,68 @@
+package io.klask.crawler;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the SymbolExtractor.
+ *
+ * @see SymbolExtractor
+ */
+public class SymbolExtractorUnitTest {
+
+    @Test
+    public void testJava() {
+        String content = "package io.klask;\n" +
+            "public class FooService implements Service {\n" +
+            "    private static final Map<String, List<String>> cache = new HashMap<>();\n" +
+            "    public Map<String, Long> getFacets(String field) {\n" +
+            "        return computeFacets(field);\n" +
+            "    }\n" +
+            "    private enum Mode { A, B }\n" +
+            "}\n";
+        assertThat(SymbolExtractor.extract("java", content)).containsExactly("FooService", "Mode", "getFacets");
+    }
+
+    @Test
+    public void testJavascript() {
+        String content = "export function parse(text) {}\n" +
+            "const render = (node) => node;\n" +
+            "export class Widget {\n" +
+            "    update(state) {\n" +
+            "        if (state) {\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n" +
+            "interface Props {\n";
+        assertThat(SymbolExtractor.extract("ts", content)).contains("parse", "render", "Widget", "update", "Props")
+            .doesNotContain("if");
+    }
+
+    @Test
+    public void testPythonAndGo() {
+        assertThat(SymbolExtractor.extract("py", "class Crawler(object):\n    async def start(self):\n        pass\n"))
+            .containsExactly("start", "Crawler");
+        assertThat(SymbolExtractor.extract("go", "type Server struct {\n}\nfunc (s *Server) Serve(addr string) error {\n}\nfunc main() {\n}\n"))
+            .containsExactly("Serve", "main", "Server");
+    }
+
+    @Test
+    public void testC() {
+        String content = "#define MAX_SIZE 10\n" +
+            "typedef struct node {\n" +
+            "} node_t;\n" +
+            "static int *list_add(node_t *list, int value)\n" +
+            "{\n" +
+            "    return list_add(list, 0);\n" +
+            "}\n" +
+            "int list_size(node_t *list);\n";
+        assertThat(SymbolExtractor.extract("c", content)).containsExactly("list_add", "node", "MAX_SIZE");
+    }
+
+    @Test
+    public void testUnsupportedExtension() {
+        assertThat(SymbolExtractor.extract("txt", "class Foo")).isEmpty();
+        assertThat(SymbolExtractor.extract(null, "class Foo")).isEmpty();
+    }
+}
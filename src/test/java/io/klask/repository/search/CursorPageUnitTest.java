@@ -0,0 +1,36 @@
+package io.klask.repository.search;
+
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CursorPage.
+ *
+ * @see CursorPage
+ */
+public class CursorPageUnitTest {
+
+    @Test
+    public void testCachedCopy() {
+        CursorPage<String> page = new CursorPage<>(Collections.singletonList("foo"), new PageRequest(0, 10), 1, null, "cursor", 12L);
+        page.addFailedShards(2);
+        page.setTerminatedEarly(true);
+
+        CursorPage<String> copy = page.cachedCopy();
+        assertThat(copy.isCached()).isTrue();
+        assertThat(copy.getTook()).isEqualTo(0);
+        // a cached partial page is still partial
+        assertThat(copy.getFailedShards()).isEqualTo(2);
+        assertThat(copy.isTerminatedEarly()).isTrue();
+        assertThat(copy.getNextCursor()).isEqualTo("cursor");
+        assertThat(copy.getContent()).containsExactly("foo");
+
+        // the cached page is left untouched
+        assertThat(page.isCached()).isFalse();
+        assertThat(page.getTook()).isEqualTo(12);
+    }
+}
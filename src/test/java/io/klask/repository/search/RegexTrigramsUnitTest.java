@@ -0,0 +1,70 @@
+package io.klask.repository.search;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RegexTrigrams decomposition.
+ *
+ * @see RegexTrigrams
+ */
+public class RegexTrigramsUnitTest {
+
+    @Test
+    public void testLiteral() {
+        List<Set<String>> branches = RegexTrigrams.extract("FooBar");
+        assertThat(branches).hasSize(1);
+        assertThat(branches.get(0)).containsExactly("foo", "oob", "oba", "bar");
+    }
+
+    @Test
+    public void testOptionalCharacterBreaksTheLiteral() {
+        List<Set<String>> branches = RegexTrigrams.extract("abcd?efg\\.h+ij");
+        assertThat(branches).hasSize(1);
+        assertThat(branches.get(0)).containsExactly("abc", "efg", "fg.", "g.h");
+    }
+
+    @Test
+    public void testGroupsAndClassesAreSkipped() {
+        List<Set<String>> branches = RegexTrigrams.extract("get(Foo|Bar)*[a-z]+Value\\w\\Q(x)\\E");
+        assertThat(branches).hasSize(1);
+        assertThat(branches.get(0)).containsExactly("get", "val", "alu", "lue", "(x)");
+    }
+
+    @Test
+    public void testEscapedCharacters() {
+        // The hex, unicode, octal and control escapes are resolved to their character
+        assertThat(RegexTrigrams.extract("\\x41BC").get(0)).containsExactly("abc");
+        assertThat(RegexTrigrams.extract("\\u0041BC").get(0)).containsExactly("abc");
+        assertThat(RegexTrigrams.extract("\\x{41}BC").get(0)).containsExactly("abc");
+        assertThat(RegexTrigrams.extract("\\0101BC").get(0)).containsExactly("abc");
+        assertThat(RegexTrigrams.extract("\\0101\\0102\\0103").get(0)).containsExactly("abc");
+        assertThat(RegexTrigrams.extract("ab\\cIcd").get(0)).containsExactly("ab\t", "b\tc", "\tcd");
+    }
+
+    @Test
+    public void testEscapesWithoutCharacterBreakTheLiteral() {
+        // \pL, \p{Lu}, \k<name> and the back references are not read as literals
+        assertThat(RegexTrigrams.extract("abc\\pLdef").get(0)).containsExactly("abc", "def");
+        assertThat(RegexTrigrams.extract("abc\\p{Lu}def").get(0)).containsExactly("abc", "def");
+        assertThat(RegexTrigrams.extract("(?<q>'')abc\\k<q>def").get(0)).containsExactly("abc", "def");
+        assertThat(RegexTrigrams.extract("(a)abc\\12def").get(0)).containsExactly("abc", "def");
+    }
+
+    @Test
+    public void testAlternation() {
+        List<Set<String>> branches = RegexTrigrams.extract("import|package");
+        assertThat(branches).hasSize(2);
+        assertThat(branches.get(1)).contains("pac", "age");
+    }
+
+    @Test
+    public void testNoLiteral() {
+        assertThat(RegexTrigrams.extract("\\w+\\s*=\\s*\\d+")).isEmpty();
+        assertThat(RegexTrigrams.extract("import|.*")).isEmpty();
+    }
+}
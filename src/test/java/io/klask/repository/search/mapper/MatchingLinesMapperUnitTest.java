@@ -0,0 +1,50 @@
+package io.klask.repository.search.mapper;
+
+import io.klask.domain.FileLine;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the MatchingLinesMapper.
+ *
+ * @see MatchingLinesMapper
+ */
+public class MatchingLinesMapperUnitTest {
+
+    private static List<Integer> matchingNumbers(List<FileLine> lines) {
+        return lines.stream().filter(FileLine::isMatch).map(FileLine::getNumber).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMapLines() {
+        MatchingLinesMapper mapper = new MatchingLinesMapper(1, 10);
+        String content = "a\nb\nint <x> = foo();\nc\nd\ne";
+        List<FileLine> lines = mapper.mapLines(content, Arrays.asList("int &lt;x&gt; = <mark>foo</mark>();"));
+        assertThat(lines).extracting(FileLine::getNumber).containsExactly(2, 3, 4);
+        assertThat(matchingNumbers(lines)).containsExactly(3);
+        assertThat(lines.get(1).getText()).isEqualTo("int <x> = foo();");
+    }
+
+    @Test
+    public void testDuplicatedMatchingLine() {
+        MatchingLinesMapper mapper = new MatchingLinesMapper(0, 10);
+        String content = "return foo;\nbar\nreturn foo;\nbaz\nreturn foo;";
+        List<FileLine> lines = mapper.mapLines(content,
+            Arrays.asList("return <mark>foo</mark>;", "return <mark>foo</mark>;", "return <mark>foo</mark>;"));
+        assertThat(matchingNumbers(lines)).containsExactly(1, 3, 5);
+    }
+
+    @Test
+    public void testMaxMatchingLines() {
+        MatchingLinesMapper mapper = new MatchingLinesMapper(0, 2);
+        String content = "foo\nfoo\nfoo";
+        List<FileLine> lines = mapper.mapLines(content,
+            Arrays.asList("<mark>foo</mark>", "<mark>foo</mark>", "<mark>foo</mark>"));
+        assertThat(matchingNumbers(lines)).containsExactly(1, 2);
+    }
+}
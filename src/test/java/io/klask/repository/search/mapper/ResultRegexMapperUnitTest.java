@@ -0,0 +1,49 @@
+package io.klask.repository.search.mapper;
+
+import org.elasticsearch.search.SearchHit;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Test class for the ResultRegexMapper.
+ *
+ * @see ResultRegexMapper
+ */
+public class ResultRegexMapperUnitTest {
+
+    private static SearchHit hit(String content) {
+        SearchHit hit = Mockito.mock(SearchHit.class);
+        Mockito.when(hit.getSource()).thenReturn(Collections.singletonMap("content", content));
+        return hit;
+    }
+
+    @Test
+    public void testMatches() {
+        ResultRegexMapper mapper = new ResultRegexMapper(Pattern.compile("foo\\w+\\("));
+        assertThat(mapper.matches(hit("void fooBar(int x)"))).isTrue();
+        assertThat(mapper.matches(hit("void foo (int x)"))).isFalse();
+    }
+
+    @Test
+    public void testCatastrophicBacktrackingIsStopped() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            content.append('a');
+        }
+        ResultRegexMapper mapper = new ResultRegexMapper(Pattern.compile("(a+)+b"), 100);
+        long start = System.currentTimeMillis();
+        try {
+            mapper.matches(hit(content.toString()));
+            fail("the regex should be stopped by the deadline");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("100 ms");
+        }
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
+}
@@ -0,0 +1,84 @@
+package io.klask.security.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.klask.config.Constants;
+import io.klask.config.JHipsterProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TokenProvider.
+ *
+ * @see TokenProvider
+ */
+public class TokenProviderUnitTest {
+
+    private static final String SECRET = "secret";
+
+    private TokenProvider tokenProvider;
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    @Before
+    public void setup() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(SECRET);
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setTokenValidityInSeconds(60);
+        cacheManager = new ConcurrentMapCacheManager(Constants.TOKEN_CACHE);
+        tokenProvider = new TokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(tokenProvider, "cacheManager", cacheManager);
+        tokenProvider.init();
+    }
+
+    @Test
+    public void testAuthenticateOnceThenFromCache() {
+        Authentication login = new UsernamePasswordAuthenticationToken("user", "",
+            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        String token = tokenProvider.createToken(login, false);
+
+        Authentication authentication = tokenProvider.authenticate(token);
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        assertThat(((ConcurrentMapCache) cacheManager.getCache(Constants.TOKEN_CACHE)).getNativeCache()).hasSize(1);
+
+        assertThat(tokenProvider.authenticate(token)).isSameAs(authentication);
+    }
+
+    @Test
+    public void testInvalidSignature() {
+        String token = Jwts.builder()
+            .setSubject("user")
+            .claim("auth", "ROLE_ADMIN")
+            .signWith(SignatureAlgorithm.HS512, "another secret")
+            .setExpiration(new Date(System.currentTimeMillis() + 60000))
+            .compact();
+
+        assertThat(tokenProvider.authenticate(token)).isNull();
+    }
+
+    @Test(expected = ExpiredJwtException.class)
+    public void testExpiredToken() {
+        String token = Jwts.builder()
+            .setSubject("user")
+            .claim("auth", "ROLE_USER")
+            .signWith(SignatureAlgorithm.HS512, SECRET)
+            .setExpiration(new Date(System.currentTimeMillis() - 1000))
+            .compact();
+
+        tokenProvider.authenticate(token);
+    }
+}
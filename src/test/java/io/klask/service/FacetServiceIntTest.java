@@ -0,0 +1,100 @@
+package io.klask.service;
+
+import io.klask.KlaskApp;
+import io.klask.config.Constants;
+import io.klask.repository.search.CustomSearchRepository;
+import net.sf.ehcache.Ehcache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.inject.Inject;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the caches of the FacetService.
+ *
+ * @see FacetService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = KlaskApp.class)
+@WebAppConfiguration
+public class FacetServiceIntTest {
+
+    @Inject
+    private FacetService facetService;
+
+    @Inject
+    private CustomSearchRepository customSearchRepository;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private CustomSearchRepository mockRepository;
+
+    @Before
+    public void setup() {
+        cacheManager.getCache(Constants.FACETS_CACHE).clear();
+        cacheManager.getCache(Constants.FILTERED_FACETS_CACHE).clear();
+        mockRepository = Mockito.mock(CustomSearchRepository.class);
+        ReflectionTestUtils.setField(AopTestUtils.<FacetService>getTargetObject(facetService), "customSearchRepository", mockRepository);
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionTestUtils.setField(AopTestUtils.<FacetService>getTargetObject(facetService), "customSearchRepository", customSearchRepository);
+        cacheManager.getCache(Constants.FACETS_CACHE).clear();
+        cacheManager.getCache(Constants.FILTERED_FACETS_CACHE).clear();
+    }
+
+    @Test
+    public void facetsAreServedFromCache() {
+        Mockito.when(mockRepository.aggregateByRawField("project", null))
+            .thenReturn(Collections.singletonMap("klask", 1L));
+
+        assertThat(facetService.getFacets("project", null)).containsEntry("klask", 1L);
+        assertThat(facetService.getFacets("project", "")).containsEntry("klask", 1L);
+
+        Mockito.verify(mockRepository, Mockito.times(1)).aggregateByRawField("project", null);
+    }
+
+    @Test
+    public void refreshFacetsReplacesTheEntry() {
+        Mockito.when(mockRepository.aggregateByRawField("project", null))
+            .thenReturn(Collections.singletonMap("klask", 1L))
+            .thenReturn(Collections.singletonMap("klask", 2L));
+        assertThat(facetService.getFacets("project", null)).containsEntry("klask", 1L);
+
+        // The precomputation after a crawl always asks elasticsearch, and the next reads get the new counts
+        assertThat(facetService.refreshFacets("project")).containsEntry("klask", 2L);
+        assertThat(facetService.getFacets("project", null)).containsEntry("klask", 2L);
+
+        Mockito.verify(mockRepository, Mockito.times(2)).aggregateByRawField("project", null);
+    }
+
+    @Test
+    public void filteredFacetsUseTheShortCache() {
+        Mockito.when(mockRepository.aggregateByRawField("extension", "foo"))
+            .thenReturn(Collections.singletonMap("java", 1L));
+
+        assertThat(facetService.getFacets("extension", "foo")).containsEntry("java", 1L);
+        assertThat(facetService.getFacets("extension", "foo")).containsEntry("java", 1L);
+
+        Mockito.verify(mockRepository, Mockito.times(1)).aggregateByRawField("extension", "foo");
+        Ehcache filtered = (Ehcache) cacheManager.getCache(Constants.FILTERED_FACETS_CACHE).getNativeCache();
+        assertThat(filtered.getSize()).isEqualTo(1);
+        assertThat(filtered.getCacheConfiguration().getTimeToLiveSeconds()).isEqualTo(60L);
+        Ehcache facets = (Ehcache) cacheManager.getCache(Constants.FACETS_CACHE).getNativeCache();
+        assertThat(facets.getSize()).isEqualTo(0);
+    }
+}
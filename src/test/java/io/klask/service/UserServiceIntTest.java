@@ -1,5 +1,7 @@
 package io.klask.service;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import io.klask.KlaskApp;
 import io.klask.domain.User;
 import io.klask.repository.UserRepository;
@@ -12,6 +14,7 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -35,6 +38,35 @@ public class UserServiceIntTest {
     @Inject
     private UserService userService;
 
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Test
+    public void assertThatUserCacheStatisticsAreExported() {
+        assertThat(metricRegistry.getGauges()).containsKeys(
+            "net.sf.ehcache.Cache.io.klask.domain.User.hits",
+            "net.sf.ehcache.Cache.io.klask.domain.User.misses",
+            "net.sf.ehcache.Cache.org.hibernate.cache.internal.StandardQueryCache.hits");
+    }
+
+    @Test
+    public void assertThatUserCacheHitsAreCounted() {
+        Gauge hits = metricRegistry.getGauges().get("net.sf.ehcache.Cache.io.klask.domain.User.hits");
+        long before = ((Number) hits.getValue()).longValue();
+
+        // The second load, in a new session, comes from the second level cache of hibernate
+        Long id = userRepository.findOneByLogin("admin").get().getId();
+        entityManager.clear();
+        userRepository.findOne(id);
+        entityManager.clear();
+        userRepository.findOne(id);
+
+        assertThat(((Number) hits.getValue()).longValue()).isGreaterThan(before);
+    }
+
     @Test
     public void assertThatUserMustExistToResetPassword() {
         Optional<User> maybeUser = userService.requestPasswordReset("john.doe@localhost");
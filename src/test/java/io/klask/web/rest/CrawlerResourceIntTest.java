@@ -0,0 +1,106 @@
+package io.klask.web.rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import io.klask.KlaskApp;
+import io.klask.crawler.CrawlerProgress;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+import io.klask.service.CrawlerService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for the CrawlerResource REST controller.
+ *
+ * @see CrawlerResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = KlaskApp.class)
+@WebAppConfiguration
+public class CrawlerResourceIntTest {
+
+    private static final Long REPOSITORY_ID = 1L;
+    private static final String REPOSITORY_NAME = "AAAAA";
+
+    @Mock
+    private CrawlerService crawlerService;
+
+    @Inject
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    private MockMvc restCrawlerMockMvc;
+
+    private CrawlerProgress progress;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        CrawlerResource crawlerResource = new CrawlerResource();
+        ReflectionTestUtils.setField(crawlerResource, "crawlerService", crawlerService);
+        this.restCrawlerMockMvc = MockMvcBuilders.standaloneSetup(crawlerResource)
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Before
+    public void initTest() {
+        Repository repository = new Repository();
+        repository.setId(REPOSITORY_ID);
+        repository.setName(REPOSITORY_NAME);
+        repository.setType(RepositoryType.FILE_SYSTEM);
+        progress = new CrawlerProgress(repository);
+        Mockito.when(crawlerService.getProgress()).thenReturn(Collections.singletonList(progress));
+    }
+
+    @Test
+    public void getProgressOfPendingCrawler() throws Exception {
+        restCrawlerMockMvc.perform(get("/api/crawler/progress"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(jsonPath("$.[0].repositoryId").value(REPOSITORY_ID.intValue()))
+            .andExpect(jsonPath("$.[0].repositoryName").value(REPOSITORY_NAME))
+            .andExpect(jsonPath("$.[0].repositoryType").value(RepositoryType.FILE_SYSTEM.toString()))
+            .andExpect(jsonPath("$.[0].phase").value(CrawlerProgress.Phase.PENDING.toString()))
+            .andExpect(jsonPath("$.[0].totalFiles").value(-1))
+            .andExpect(jsonPath("$.[0].etaSeconds").value(-1));
+    }
+
+    @Test
+    public void getProgressOfRunningCrawler() throws Exception {
+        progress.start();
+        progress.setPhase(CrawlerProgress.Phase.INDEXING);
+        progress.addTotalFiles(10);
+        progress.addFileSeen(1024);
+        progress.addFilesIndexed(1);
+        progress.addFailures(1);
+
+        restCrawlerMockMvc.perform(get("/api/crawler/progress"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].phase").value(CrawlerProgress.Phase.INDEXING.toString()))
+            .andExpect(jsonPath("$.[0].totalFiles").value(10))
+            .andExpect(jsonPath("$.[0].filesSeen").value(1))
+            .andExpect(jsonPath("$.[0].filesIndexed").value(1))
+            .andExpect(jsonPath("$.[0].failures").value(1))
+            .andExpect(jsonPath("$.[0].bytesRead").value(1024));
+    }
+}
@@ -0,0 +1,81 @@
+package io.klask.web.rest;
+
+import io.klask.KlaskApp;
+import io.klask.domain.File;
+import io.klask.repository.search.FileSearchRepository;
+import io.klask.service.ExportService;
+import io.klask.service.IndexService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the ExportResource REST controller.
+ *
+ * @see ExportResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = KlaskApp.class)
+@WebAppConfiguration
+public class ExportResourceIntTest {
+
+    @Inject
+    private FileSearchRepository fileSearchRepository;
+
+    @Inject
+    private ExportService exportService;
+
+    @Inject
+    private IndexService indexService;
+
+    private MockMvc restExportMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        ExportResource exportResource = new ExportResource();
+        ReflectionTestUtils.setField(exportResource, "exportService", exportService);
+        this.restExportMockMvc = MockMvcBuilders.standaloneSetup(exportResource).build();
+        indexService.initIndexes();
+    }
+
+    @Before
+    public void initTest() {
+        fileSearchRepository.deleteAll();
+    }
+
+    @Test
+    public void exportFilesWithMatchingLines() throws Exception {
+        fileSearchRepository.save(new File(UUID.randomUUID().toString(), "Hello.java", "java", "/src/Hello.java", "klask",
+            "class Hello {\n    // nothing\n    String world = \"world\";\n}", "trunk", 60L));
+        fileSearchRepository.save(new File(UUID.randomUUID().toString(), "Other.java", "java", "/src/Other.java", "klask",
+            "class Other {\n}", "trunk", 15L));
+
+        MvcResult mvcResult = restExportMockMvc.perform(get("/api/_export/files?query=world&lines=true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restExportMockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk());
+        String ndjson = mvcResult.getResponse().getContentAsString();
+
+        assertThat(ndjson.split("\n")).hasSize(1);
+        assertThat(ndjson).contains("\"path\":\"/src/Hello.java\"");
+        assertThat(ndjson).contains("\"lines\":[{\"line\":3,\"text\":\"    String world = \\\"world\\\";\"}]");
+    }
+}
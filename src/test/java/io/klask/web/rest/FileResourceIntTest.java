@@ -1,10 +1,18 @@
 package io.klask.web.rest;
 
+import com.codahale.metrics.MetricRegistry;
+import com.jayway.jsonpath.JsonPath;
 import io.klask.KlaskApp;
+import io.klask.config.KlaskProperties;
 import io.klask.domain.File;
 import io.klask.repository.search.CustomSearchRepository;
 import io.klask.repository.search.FileSearchRepository;
+import io.klask.service.CrawlerService;
 import io.klask.service.IndexService;
+import io.klask.service.SearchMetricsService;
+import io.klask.web.rest.errors.ErrorConstants;
+import io.klask.web.rest.errors.ExceptionTranslator;
+import io.klask.web.rest.util.PaginationUtil;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,6 +22,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -24,10 +33,15 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -48,6 +62,8 @@ public class FileResourceIntTest {
 
     private static final String DEFAULT_CONTENT = "AAAAA";
     private static final String DEFAULT_VERSION = "AAAAA";
+    private static final String DEFAULT_PROJECT = "AAAAA";
+    private static final String DEFAULT_EXTENSION = "java";
 
     @Inject
     private FileSearchRepository fileSearchRepository;
@@ -64,6 +80,18 @@ public class FileResourceIntTest {
     @Inject
     private IndexService indexService;
 
+    @Inject
+    private CrawlerService crawlerService;
+
+    @Inject
+    private SearchMetricsService searchMetricsService;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private KlaskProperties klaskProperties;
+
     private MockMvc restFileMockMvc;
 
     private File file;
@@ -74,9 +102,12 @@ public class FileResourceIntTest {
         FileResource fileResource = new FileResource();
         ReflectionTestUtils.setField(fileResource, "fileSearchRepository", fileSearchRepository);
         ReflectionTestUtils.setField(fileResource, "customSearchRepository", customSearchRepository);
+        ReflectionTestUtils.setField(fileResource, "crawlerService", crawlerService);
+        ReflectionTestUtils.setField(fileResource, "searchMetricsService", searchMetricsService);
         this.restFileMockMvc = MockMvcBuilders.standaloneSetup(fileResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
-            .setMessageConverters(jacksonMessageConverter).build();
+            .setControllerAdvice(new ExceptionTranslator())
+            .setMessageConverters(new ResourceHttpMessageConverter(), jacksonMessageConverter).build();
         indexService.initIndexes();
     }
 
@@ -172,6 +203,432 @@ public class FileResourceIntTest {
                 .andExpect(jsonPath("$.[*].version").value(hasItem(DEFAULT_VERSION.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllFilesWithCursor() throws Exception {
+        // Initialize the database with 3 files
+        for (String name : new String[]{"a.java", "b.java", "c.java"}) {
+            fileSearchRepository.save(new File(UUID.randomUUID().toString(), name, DEFAULT_EXTENSION, DEFAULT_PATH, DEFAULT_PROJECT, DEFAULT_CONTENT, DEFAULT_VERSION, 0L));
+        }
+
+        // Get the first page, the cursor of the next page is in the header
+        String cursor = restFileMockMvc.perform(get("/api/files?sort=name,asc&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].name").value(contains("a.java", "b.java")))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andReturn().getResponse().getHeader(PaginationUtil.NEXT_CURSOR_HEADER);
+        assertThat(cursor).isNotNull();
+
+        // Get the next page with the cursor
+        restFileMockMvc.perform(get("/api/files?sort=name,asc&size=2&page=1&cursor=" + cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].name").value(contains("c.java")))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().doesNotExist(PaginationUtil.NEXT_CURSOR_HEADER));
+
+        // The total counts the hits before the cursor, whatever the page sent with it
+        restFileMockMvc.perform(get("/api/files?sort=name,asc&size=2&page=0&cursor=" + cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].name").value(contains("c.java")))
+            .andExpect(header().string("X-Total-Count", "3"));
+
+        // An invalid cursor is rejected
+        restFileMockMvc.perform(get("/api/files?sort=name,asc&size=2&cursor=invalid"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchFilesWithFacets() throws Exception {
+        // Initialize the database
+        file.setProject(DEFAULT_PROJECT);
+        file.setExtension(DEFAULT_EXTENSION);
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // Search the file and its facets in one request
+        restFileMockMvc.perform(get("/api/_search/files/faceted?query=" + DEFAULT_CONTENT))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.files.[*].id").value(hasItem(file.getId())))
+            .andExpect(jsonPath("$.versions.[0].name").value(DEFAULT_VERSION))
+            .andExpect(jsonPath("$.versions.[0].docNumber").value(1))
+            .andExpect(jsonPath("$.projects.[0].name").value(DEFAULT_PROJECT))
+            .andExpect(jsonPath("$.extensions.[0].name").value(DEFAULT_EXTENSION));
+    }
+
+    @Test
+    public void profileSearchFiles() throws Exception {
+        // Initialize the database
+        file.setContent("public void fooBar(int x) {\n    return x;\n}");
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The wildcard is expanded by the rewrite, the expanded term is in the query tree
+        restFileMockMvc.perform(get("/api/_search/files/profile").param("query", "foo*"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.hits").value(1))
+            .andExpect(jsonPath("$.failedShards").value(0))
+            .andExpect(jsonPath("$.highlightTime").isNumber())
+            .andExpect(jsonPath("$.shards.[0].rewriteTime").isNumber())
+            .andExpect(jsonPath("$.shards.[0].aggregationTime").isNumber())
+            .andExpect(jsonPath("$.shards.[*].queries.[*].description").value(hasItem(containsString("foobar"))));
+    }
+
+    @Test
+    public void searchFilesWithRegex() throws Exception {
+        // Initialize the database
+        file.setContent("public void fooBar(int x) {\n    return x;\n}");
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The candidate found by the trigrams "foo" and "bar" is verified with the regex
+        restFileMockMvc.perform(get("/api/_search/files").param("regex", "true").param("query", "foo\\w+\\(int"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(file.getId())))
+            .andExpect(jsonPath("$.[0].content").value("public void <mark>fooBar(int</mark> x) {"));
+
+        // A candidate which doesn't match the regex is rejected
+        restFileMockMvc.perform(get("/api/_search/files").param("regex", "true").param("query", "fooBar\\(long"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+
+        // A regex without literal would verify the whole index
+        restFileMockMvc.perform(get("/api/_search/files").param("regex", "true").param("query", "\\w+"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchFilesWithPhrase() throws Exception {
+        // Initialize the database
+        file.setContent("if (node->next != null) {\n    list.add(node);\n}");
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The punctuation is part of the phrase
+        restFileMockMvc.perform(get("/api/_search/files").param("phrase", "true").param("query", "node->next"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(file.getId())))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>")));
+
+        restFileMockMvc.perform(get("/api/_search/files").param("phrase", "true").param("query", "list.add(node)"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"));
+
+        restFileMockMvc.perform(get("/api/_search/files").param("phrase", "true").param("query", "list->add"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+    }
+
+    @Test
+    public void searchFilesWithDefinition() throws Exception {
+        // Initialize the database with a definition and a usage of the symbol
+        file.setContent("public class FooService {\n}");
+        file.setSymbols(Collections.singletonList("FooService"));
+        fileSearchRepository.save(file);
+        File usage = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, "new FooService();", DEFAULT_VERSION, 0L);
+        fileSearchRepository.save(usage);
+        crawlerService.notifyIndexChanged();
+
+        // Only the definition is found, with the symbol highlighted in the content
+        restFileMockMvc.perform(get("/api/_search/files?query=def:FooService"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].id").value(file.getId()))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>FooService</mark>")));
+
+        restFileMockMvc.perform(get("/api/_search/files?query=def:foo*"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"));
+
+        restFileMockMvc.perform(get("/api/_search/files?query=def:*Service"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>FooService</mark>")));
+    }
+
+    @Test
+    public void searchFilesWithSpecialDefinition() throws Exception {
+        // The special characters of the symbol are not parsed as a syntax
+        restFileMockMvc.perform(get("/api/_search/files?query=def:foo("))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+
+        restFileMockMvc.perform(get("/api/_search/files?query=def:a:b"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+
+        // The wildcards of the symbol are guarded like the ones of a query
+        restFileMockMvc.perform(get("/api/_search/files?query=def:*a*"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchFilesWithLeadingWildcard() throws Exception {
+        // Initialize the database
+        file.setContent("public void fooBar(int x) {\n    return x;\n}");
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The leading wildcard is searched on the trigrams, and highlighted on the content of the hit
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*ooBa* return"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].id").value(file.getId()))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>fooBar</mark>")));
+
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*oobaz*"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+
+        // All the trigrams of the literal, but scattered in the content
+        File scattered = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, "food oobar obama bar", DEFAULT_VERSION, 0L);
+        fileSearchRepository.save(scattered);
+        crawlerService.notifyIndexChanged();
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*fooBar*"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].id").value(file.getId()));
+
+        // An anchored leading wildcard must end the token (ServiceImpl would also index its camel case part service)
+        File impl = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, "class serviceimpl {}", DEFAULT_VERSION, 0L);
+        fileSearchRepository.save(impl);
+        crawlerService.notifyIndexChanged();
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*Service"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*erviceimpl"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].id").value(impl.getId()))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>serviceimpl</mark>")));
+
+        // A wildcard without 3 consecutive characters would scan the whole dictionary of the content
+        restFileMockMvc.perform(get("/api/_search/files").param("query", "*o*"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_EXPENSIVE_WILDCARD))
+            .andExpect(jsonPath("$.params.[0]").value("*o*"));
+    }
+
+    @Test
+    public void searchFilesWithBoundedHighlight() throws Exception {
+        // Initialize the database with a long line, a whole sentence for the postings highlighter
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append("foo bar ");
+        }
+        file.setContent(content.append("needle").append(content).toString());
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The fragment is trimmed around the highlight
+        String fragment = JsonPath.read(restFileMockMvc.perform(get("/api/_search/files?query=needle"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.[0].content");
+        assertThat(fragment).contains("<mark>needle</mark>");
+        assertThat(fragment.length()).isLessThanOrEqualTo(150);
+
+        // Without highlight, no fragment is returned
+        String took = restFileMockMvc.perform(get("/api/_search/files?query=needle&highlight=false"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].content").doesNotExist())
+            .andReturn().getResponse().getHeader(PaginationUtil.SEARCH_TOOK_HEADER);
+
+        // The time spent in elasticsearch is returned
+        assertThat(took).matches("\\d+");
+    }
+
+    @Test
+    public void searchFilesWithoutExactCount() throws Exception {
+        // Initialize the database
+        file.setContent("public void fooBar(int x) {\n    return x;\n}");
+        file.setExtension(DEFAULT_EXTENSION);
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // A simple query, filtered in the query and stopped after klask.search.terminateAfter documents by shard
+        restFileMockMvc.perform(get("/api/_search/files?query=fooBar return&extension=" + DEFAULT_EXTENSION + "&exactCount=false"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().doesNotExist(PaginationUtil.TERMINATED_EARLY_HEADER))
+            .andExpect(jsonPath("$.[0].id").value(file.getId()))
+            .andExpect(jsonPath("$.[0].content").value(containsString("<mark>fooBar</mark>")));
+
+        restFileMockMvc.perform(get("/api/_search/files?query=fooBar&extension=js&exactCount=false"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"));
+    }
+
+    @Test
+    public void searchFilesFromCache() throws Exception {
+        // Initialize the database
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+        long searches = metricRegistry.timer("klask.search.search").getCount();
+        long cacheHits = metricRegistry.meter("klask.search.search.cacheHits").getCount();
+
+        restFileMockMvc.perform(get("/api/_search/files?query=" + DEFAULT_CONTENT))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().doesNotExist(PaginationUtil.SEARCH_CACHE_HEADER));
+
+        // The same search is served from the cache, without any time spent in elasticsearch, and still measured
+        restFileMockMvc.perform(get("/api/_search/files?query=" + DEFAULT_CONTENT))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().string(PaginationUtil.SEARCH_CACHE_HEADER, "hit"))
+            .andExpect(header().string(PaginationUtil.SEARCH_TOOK_HEADER, "0"));
+
+        assertThat(metricRegistry.timer("klask.search.search").getCount()).isEqualTo(searches + 2);
+        assertThat(metricRegistry.meter("klask.search.search.cacheHits").getCount()).isEqualTo(cacheHits + 1);
+    }
+
+    @Test
+    public void searchFilesWithMatchingLines() throws Exception {
+        // Initialize the database
+        file.setContent("line one\nline two\nline three\nline four\nthe needle & thread\nline six\nline seven\nline eight\n");
+        file.setSize((long) file.getContent().length());
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        // The matching line comes with its number and 2 lines of context
+        restFileMockMvc.perform(get("/api/_search/files?query=needle&lines=true"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].lines.[*].number").value(contains(3, 4, 5, 6, 7)))
+            .andExpect(jsonPath("$.[0].lines.[2].match").value(true))
+            .andExpect(jsonPath("$.[0].lines.[2].text").value("the needle & thread"))
+            .andExpect(jsonPath("$.[0].lines.[1].match").value(false));
+
+        // The content isn't read if the lines aren't asked
+        restFileMockMvc.perform(get("/api/_search/files?query=needle"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(file.getId()))
+            .andExpect(jsonPath("$.[0].lines").doesNotExist());
+    }
+
+    @Test
+    public void searchFilesOverThePlainHighlightSize() throws Exception {
+        // Initialize the database with a small file and a file bigger than the bound of the plain highlighter
+        file.setContent("public void fooBar(int x) {\n    return x;\n}");
+        file.setSize((long) file.getContent().length());
+        fileSearchRepository.save(file);
+        String bigContent = "public void fooBar(long x) {\n    return x;\n}";
+        File big = new File(UUID.randomUUID().toString(), "big", null, DEFAULT_PATH, null, bigContent, DEFAULT_VERSION, 1000L);
+        fileSearchRepository.save(big);
+        crawlerService.notifyIndexChanged();
+
+        long maxPlainSize = klaskProperties.getSearch().getHighlight().getMaxPlainSize();
+        klaskProperties.getSearch().getHighlight().setMaxPlainSize(file.getSize());
+        try {
+            // The big file is found, but returned without fragments
+            restFileMockMvc.perform(get("/api/_search/files").param("query", "*ooBa*").param("sort", "size,asc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$.[0].id").value(file.getId()))
+                .andExpect(jsonPath("$.[0].content").value(containsString("<mark>fooBar</mark>")))
+                .andExpect(jsonPath("$.[1].id").value(big.getId()))
+                .andExpect(jsonPath("$.[1].content").doesNotExist());
+
+            restFileMockMvc.perform(get("/api/_search/files").param("phrase", "true").param("query", "return x;").param("sort", "size,asc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$.[0].content").value(containsString("<mark>")))
+                .andExpect(jsonPath("$.[1].content").doesNotExist());
+        } finally {
+            klaskProperties.getSearch().getHighlight().setMaxPlainSize(maxPlainSize);
+        }
+    }
+
+    @Test
+    public void searchFilesWithMatchingLinesOverThePageBytes() throws Exception {
+        // Initialize the database with two files, and room for one only
+        file.setContent("the needle\n");
+        file.setSize((long) file.getContent().length());
+        fileSearchRepository.save(file);
+        File other = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, "the needle\n", DEFAULT_VERSION, (long) "the needle\n".length());
+        fileSearchRepository.save(other);
+        crawlerService.notifyIndexChanged();
+
+        long maxPageBytes = klaskProperties.getSearch().getLines().getMaxPageBytes();
+        klaskProperties.getSearch().getLines().setMaxPageBytes(file.getSize());
+        try {
+            restFileMockMvc.perform(get("/api/_search/files?query=needle&lines=true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$.[*].lines").value(hasSize(1)));
+        } finally {
+            klaskProperties.getSearch().getLines().setMaxPageBytes(maxPageBytes);
+        }
+    }
+
+    @Test
+    public void getRawFile() throws Exception {
+        // Initialize the database
+        file.setExtension("java");
+        file.setContent("class Caf\u00e9 {}");
+        file.setContentHash("hash-raw");
+        fileSearchRepository.save(file);
+
+        // The content is sent as is, with its ETag
+        restFileMockMvc.perform(get("/api/files/{id}/raw", file.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/x-java-source;charset=UTF-8"))
+            .andExpect(header().string("ETag", "\"hash-raw\""))
+            .andExpect(content().bytes("class Caf\u00e9 {}".getBytes(StandardCharsets.UTF_8)));
+
+        // Not modified
+        restFileMockMvc.perform(get("/api/files/{id}/raw", file.getId()).header("If-None-Match", "\"hash-raw\""))
+            .andExpect(status().isNotModified());
+
+        // A range of bytes
+        restFileMockMvc.perform(get("/api/files/{id}/raw", file.getId()).header("Range", "bytes=6-10"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string("Content-Range", "bytes 6-10/14"))
+            .andExpect(content().bytes("Caf\u00e9".getBytes(StandardCharsets.UTF_8)));
+
+        restFileMockMvc.perform(get("/api/files/{id}/raw", file.getId()).header("Range", "bytes=100-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string("Content-Range", "bytes */14"));
+
+        restFileMockMvc.perform(get("/api/files/{id}/raw", "unknown"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void searchFilesCollapsedByContent() throws Exception {
+        // Initialize the database with the same file in two versions, and another file
+        file.setContentHash("hash-1");
+        fileSearchRepository.save(file);
+        File sameFile = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, DEFAULT_CONTENT, "BBBBB", 0L);
+        sameFile.setContentHash("hash-1");
+        fileSearchRepository.save(sameFile);
+        File otherFile = new File(UUID.randomUUID().toString(), DEFAULT_NAME, null, DEFAULT_PATH, null, DEFAULT_CONTENT + " CCCCC", DEFAULT_VERSION, 0L);
+        otherFile.setContentHash("hash-2");
+        fileSearchRepository.save(otherFile);
+        crawlerService.notifyIndexChanged();
+
+        // One hit by content, with all its versions
+        restFileMockMvc.perform(get("/api/_search/files?query=" + DEFAULT_CONTENT + "&collapse=content&sort=id,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "2"))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[?(@.contentHash == 'hash-1')].versions.[*]").value(contains("AAAAA", "BBBBB")))
+            .andExpect(jsonPath("$.[?(@.contentHash == 'hash-2')].versions.[*]").value(contains("AAAAA")));
+
+        // The total counts the groups found by the scan of all the hits
+        restFileMockMvc.perform(get("/api/_search/files?query=" + DEFAULT_CONTENT + "&collapse=content&sort=id,asc&size=1&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "2"))
+            .andExpect(jsonPath("$", hasSize(1)));
+
+        restFileMockMvc.perform(get("/api/_search/files?query=" + DEFAULT_CONTENT + "&collapse=unknown"))
+            .andExpect(status().isBadRequest());
+    }
+
 //
 //    @Test
 //    @Transactional
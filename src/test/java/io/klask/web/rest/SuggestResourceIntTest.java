@@ -0,0 +1,80 @@
+package io.klask.web.rest;
+
+import io.klask.KlaskApp;
+import io.klask.domain.File;
+import io.klask.repository.search.FileSearchRepository;
+import io.klask.service.CrawlerService;
+import io.klask.service.IndexService;
+import io.klask.service.SuggestService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the SuggestResource REST controller.
+ *
+ * @see SuggestResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = KlaskApp.class)
+@WebAppConfiguration
+public class SuggestResourceIntTest {
+
+    @Inject
+    private FileSearchRepository fileSearchRepository;
+
+    @Inject
+    private SuggestService suggestService;
+
+    @Inject
+    private IndexService indexService;
+
+    @Inject
+    private CrawlerService crawlerService;
+
+    private MockMvc restSuggestMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        SuggestResource suggestResource = new SuggestResource();
+        ReflectionTestUtils.setField(suggestResource, "suggestService", suggestService);
+        this.restSuggestMockMvc = MockMvcBuilders.standaloneSetup(suggestResource).build();
+        indexService.initIndexes();
+    }
+
+    @Test
+    public void suggestFileNamesAndSymbols() throws Exception {
+        File file = new File(UUID.randomUUID().toString(), "Zorglub.java", "java", "/src/zorglonde/Zorglub.java", "klask",
+            "class Zorglub {}", "trunk", 16L);
+        file.setSuggest(Arrays.asList("Zorglub.java", "src", "zorglonde", "klask", "ZorglubFactory"));
+        fileSearchRepository.save(file);
+        crawlerService.notifyIndexChanged();
+
+        restSuggestMockMvc.perform(get("/api/_suggest?prefix=zorg"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+            .andExpect(jsonPath("$").value(containsInAnyOrder("Zorglub.java", "zorglonde", "ZorglubFactory")));
+
+        restSuggestMockMvc.perform(get("/api/_suggest?prefix=zorglub&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").value(hasSize(1)));
+    }
+}
@@ -0,0 +1,31 @@
+package io.klask.web.rest.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the Queries.
+ *
+ * @see Queries
+ */
+public class QueriesUnitTest {
+
+    @Test
+    public void testSimpleQuery() {
+        assertThat(Queries.isSimpleQuery("fooBar return")).isTrue();
+        assertThat(Queries.isSimpleQuery("foo.bar andy")).isTrue();
+        assertThat(Queries.isSimpleQuery("")).isFalse();
+        assertThat(Queries.isSimpleQuery("   ")).isFalse();
+    }
+
+    @Test
+    public void testLuceneSyntax() {
+        assertThat(Queries.isSimpleQuery("foo*")).isFalse();
+        assertThat(Queries.isSimpleQuery("\"foo bar\"")).isFalse();
+        assertThat(Queries.isSimpleQuery("name:foo")).isFalse();
+        assertThat(Queries.isSimpleQuery("-foo")).isFalse();
+        assertThat(Queries.isSimpleQuery("foo OR bar")).isFalse();
+        assertThat(Queries.isSimpleQuery("foo^2")).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package io.klask.web.rest.util;
+
+import io.klask.web.rest.errors.CustomParameterizedException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Test class for the QueryAnalysis.
+ *
+ * @see QueryAnalysis
+ */
+public class QueryAnalysisUnitTest {
+
+    @Test
+    public void testWithoutWildcard() {
+        QueryAnalysis analysis = QueryAnalysis.analyze("foo AND \"a*b\" path:bar*");
+        assertThat(analysis.getQuery()).isEqualTo("foo AND \"a*b\" path:bar*");
+        assertThat(analysis.getTrigramTerms()).isEmpty();
+        assertThat(analysis.getCost()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLeadingWildcardRewritten() {
+        QueryAnalysis analysis = QueryAnalysis.analyze("foo AND *BarBaz* +content:*quux*");
+        assertThat(analysis.getQuery()).isEqualTo("foo");
+        assertThat(analysis.getTrigramTerms()).hasSize(2);
+        assertThat(analysis.getTrigramTerms().get(0).getField()).isNull();
+        assertThat(analysis.getTrigramTerms().get(0).getTrigrams()).containsExactly("bar", "arb", "rba", "baz");
+        assertThat(analysis.getTrigramTerms().get(1).getField()).isEqualTo("content");
+        assertThat(analysis.getTrigramTerms().get(1).getTrigrams()).containsExactly("quu", "uux");
+        assertThat(analysis.getTrigramTerms().get(1).getLiterals()).containsExactly("quux");
+    }
+
+    @Test
+    public void testAnchoredLeadingWildcard() {
+        // The trigrams can't tell where the literal ends, the wildcard is searched in the dictionary
+        QueryAnalysis analysis = QueryAnalysis.analyze("foo *Service");
+        assertThat(analysis.getQuery()).isEqualTo("foo *Service");
+        assertThat(analysis.getTrigramTerms()).isEmpty();
+        assertThat(analysis.getCost()).isEqualTo(5);
+        assertThat(QueryAnalysis.analyze("*quux?").getTrigramTerms()).isEmpty();
+        assertThat(QueryAnalysis.analyze("*foo*bar").getTrigramTerms()).isEmpty();
+        assertThat(QueryAnalysis.analyze("*foo\\*").getTrigramTerms()).isEmpty();
+    }
+
+    @Test
+    public void testLiteralsOfLeadingWildcard() {
+        // Each literal is searched as a phrase of its trigrams, the literals too short have no trigram
+        QueryAnalysis analysis = QueryAnalysis.analyze("*fooBar*ab?Baz*");
+        assertThat(analysis.getTrigramTerms().get(0).getLiterals()).containsExactly("foobar", "baz");
+    }
+
+    @Test
+    public void testLeadingWildcardNotRequired() {
+        // In a OR, negated or in a group, the wildcard is kept in the query
+        assertThat(QueryAnalysis.analyze("foo OR *bar").getTrigramTerms()).isEmpty();
+        assertThat(QueryAnalysis.analyze("-*bar").getTrigramTerms()).isEmpty();
+        assertThat(QueryAnalysis.analyze("(foo *bar)").getTrigramTerms()).isEmpty();
+        assertThat(QueryAnalysis.analyze("(foo *bar)").getCost()).isEqualTo(5);
+    }
+
+    @Test
+    public void testExpensiveWildcard() {
+        try {
+            QueryAnalysis.analyze("foo *a*");
+            fail("a leading wildcard without trigram should be rejected");
+        } catch (CustomParameterizedException e) {
+            assertThat(e.getErrorDTO().getParams()).containsExactly("*a*");
+        }
+        // On a small field, the wildcard is allowed
+        assertThat(QueryAnalysis.analyze("extension:*s").getCost()).isEqualTo(5);
+    }
+
+    @Test
+    public void testExpensiveQuery() {
+        try {
+            QueryAnalysis.analyze("(*foo OR *bar OR *baz)");
+            fail("three leading wildcards in the dictionary should be rejected");
+        } catch (CustomParameterizedException e) {
+            assertThat(e.getErrorDTO().getParams()).containsExactly("15", "10");
+        }
+    }
+}
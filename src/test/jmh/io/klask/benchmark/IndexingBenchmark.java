@@ -0,0 +1,337 @@
+package io.klask.benchmark;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.util.FileSystemUtils;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.klask.KlaskApp;
+import io.klask.config.Constants;
+import io.klask.config.KlaskProperties;
+import io.klask.crawler.CrawlerProgress;
+import io.klask.crawler.ICrawler;
+import io.klask.crawler.impl.FileSystemCrawler;
+import io.klask.crawler.impl.GitCrawler;
+import io.klask.crawler.impl.SVNCrawler;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+import io.klask.repository.RepositoryRepository;
+import io.klask.repository.search.FileSearchRepository;
+import io.klask.service.IndexService;
+
+/**
+ * End to end indexing benchmark : the same synthetic repository is written as a filesystem tree, a local git
+ * repository (one branch by svn branch) and a local {@code file://} svn repository, then each crawler indexes
+ * it in the embedded elasticsearch node of the dev profile.
+ * <p>
+ * The node, the H2 database and the git checkouts live in the work directory, which is deleted at each run,
+ * so the data of the dev profile is never touched. The logs and the logging aspect are set as in production. The report gives, by crawler, the documents and MB indexed
+ * by second, the peak heap (sum of the peaks of the heap pools) and the GC time during the crawl.
+ * </p>
+ * <pre>./mvnw -Pdev,jmh test-compile exec:exec@indexing-benchmark -Dindexing.args="--files=1000 --branches=3"</pre>
+ * Options : {@code --projects --branches --files} (by branch and project) {@code --median-size --max-size
+ * --latin1-ratio --seed --crawlers=filesystem,git,svn --work-dir --output --version}
+ */
+public class IndexingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexingBenchmark.class);
+
+    private final SimpleCommandLinePropertySource options;
+
+    private final Path workDir;
+
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    private FileSearchRepository fileSearchRepository;
+
+    private RepositoryRepository repositoryRepository;
+
+    private KlaskProperties klaskProperties;
+
+    private MetricRegistry metricRegistry;
+
+    public IndexingBenchmark(String... args) {
+        this.options = new SimpleCommandLinePropertySource(args);
+        this.workDir = Paths.get(option("work-dir", "target/indexing-benchmark")).toAbsolutePath();
+    }
+
+    public static void main(String[] args) throws Exception {
+        //the restart of devtools would run the benchmark twice
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        new IndexingBenchmark(args).run();
+    }
+
+    public void run() throws Exception {
+        FileSystemUtils.deleteRecursively(workDir.toFile());
+        Files.createDirectories(workDir);
+
+        Report report = new Report();
+        report.date = ZonedDateTime.now().toString();
+        report.version = option("version", "unknown");
+        report.java = System.getProperty("java.vm.name") + " " + System.getProperty("java.version");
+        report.processors = Runtime.getRuntime().availableProcessors();
+        report.maxHeap = Runtime.getRuntime().maxMemory();
+        report.projects = Integer.parseInt(option("projects", "2"));
+        report.branches = Integer.parseInt(option("branches", "2"));
+        report.filesByBranch = Integer.parseInt(option("files", "500"));
+        report.medianFileSize = Integer.parseInt(option("median-size", "4096"));
+        report.maxFileSize = Integer.parseInt(option("max-size", String.valueOf(512 * 1024)));
+        report.latin1Ratio = Double.parseDouble(option("latin1-ratio", "0.1"));
+        report.seed = Long.parseLong(option("seed", "42"));
+        List<String> crawlers = Arrays.asList(option("crawlers", "filesystem,git,svn").split(","));
+
+        Path tree = workDir.resolve("tree");
+        report.treeBytes = sizeOf(tree(report).write(tree));
+        log.info("synthetic tree of {} bytes written in {}", report.treeBytes, tree);
+
+        try (ConfigurableApplicationContext context = start()) {
+            elasticsearchTemplate = context.getBean(ElasticsearchTemplate.class);
+            fileSearchRepository = context.getBean(FileSearchRepository.class);
+            repositoryRepository = context.getBean(RepositoryRepository.class);
+            klaskProperties = context.getBean(KlaskProperties.class);
+            metricRegistry = context.getBean(MetricRegistry.class);
+            klaskProperties.getCrawler().setWorkingDirectory(workDir.resolve("checkouts").toString());
+
+            List<ICrawler> jobs = new ArrayList<>();
+            if (crawlers.contains("filesystem")) {
+                Repository repository = save("benchmark-filesystem", tree.toString(), RepositoryType.FILE_SYSTEM);
+                jobs.add(new FileSystemCrawler(repository, klaskProperties, fileSearchRepository, elasticsearchTemplate, metricRegistry));
+            }
+            if (crawlers.contains("git")) {
+                Path git = createGitRepository(workDir.resolve("git"), report);
+                Repository repository = save("benchmark-git", git.toString(), RepositoryType.GIT);
+                jobs.add(new GitCrawler(repository, klaskProperties, elasticsearchTemplate, metricRegistry));
+            }
+            if (crawlers.contains("svn")) {
+                SVNURL url = createSvnRepository(workDir.resolve("svn"), tree);
+                Repository repository = save("benchmark-svn", url.toString(), RepositoryType.SVN);
+                jobs.add(new SVNCrawler(repository, klaskProperties, fileSearchRepository, elasticsearchTemplate,
+                    repositoryRepository, metricRegistry));
+            }
+            //one index by repository, as before a crawl started by the REST API
+            context.getBean(IndexService.class).createIndexes();
+            for (ICrawler job : jobs) {
+                report.results.add(crawl(job));
+            }
+        }
+
+        Path output = Paths.get(option("output", "target/indexing-benchmark.json"));
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+        log.info("indexing benchmark report written in {}", output.toAbsolutePath());
+    }
+
+    private ConfigurableApplicationContext start() throws URISyntaxException {
+        //the configuration of the application, not the one of the tests which comes first in the classpath
+        Path classes = Paths.get(KlaskApp.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        //command line arguments, so they override the configuration of the dev profile
+        return new SpringApplicationBuilder(KlaskApp.class)
+            .profiles(Constants.SPRING_PROFILE_DEVELOPMENT)
+            .run(
+                "--spring.config.location=" + classes.resolve("config").toUri(),
+                "--server.port=0",
+                "--spring.jpa.show_sql=false",
+                "--logging.level.io.klask=INFO",
+                "--klask.aspect.mode=sampling",
+                "--spring.datasource.url=jdbc:h2:mem:klask-benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.data.elasticsearch.properties.http.enabled=false",
+                "--spring.data.elasticsearch.properties.path.data=" + workDir.resolve("elasticsearch/data"),
+                "--spring.data.elasticsearch.properties.path.logs=" + workDir.resolve("elasticsearch/log"));
+    }
+
+    private CrawlResult crawl(ICrawler crawler) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+        //the garbage of the previous crawl and of the repository generation is not counted
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcTime = gcTime();
+        long gcCount = gcCount();
+
+        long start = System.nanoTime();
+        crawler.start();
+        long elapsed = System.nanoTime() - start;
+
+        CrawlerProgress progress = crawler.getProgress();
+        CrawlResult result = new CrawlResult();
+        result.crawler = progress.getRepositoryType().name();
+        result.phase = progress.getPhase().name();
+        result.documents = countDocuments(progress);
+        result.filesIndexed = progress.getFilesIndexed();
+        result.failures = progress.getFailures();
+        result.bytesRead = progress.getBytesRead();
+        result.seconds = elapsed / 1e9;
+        result.docsPerSecond = result.documents / result.seconds;
+        result.megaBytesPerSecond = result.bytesRead / result.seconds / (1024 * 1024);
+        result.peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        result.gcTimeMillis = gcTime() - gcTime;
+        result.gcCount = gcCount() - gcCount;
+        log.info("{} : {} documents in {}s, {} docs/s, {} MB/s", result.crawler, result.documents,
+            String.format("%.1f", result.seconds), String.format("%.0f", result.docsPerSecond),
+            String.format("%.2f", result.megaBytesPerSecond));
+        return result;
+    }
+
+    private Repository save(String name, String path, RepositoryType type) {
+        Repository repository = new Repository();
+        repository.setName(name);
+        repository.setPath(path);
+        repository.setType(type);
+        return repositoryRepository.save(repository);
+    }
+
+    /**
+     * a git repository with the projects of the tree on master, and one branch by svn branch
+     */
+    private Path createGitRepository(Path dir, Report report) throws IOException, GitAPIException {
+        SyntheticTree tree = tree(report);
+        try (Git git = Git.init().setDirectory(dir.toFile()).call()) {
+            tree.writeSnapshot(dir);
+            commit(git, "trunk");
+            for (int b = 0; b < report.branches; b++) {
+                git.checkout().setCreateBranch(true).setName("1." + b).setStartPoint("master").call();
+                try (Stream<Path> files = Files.list(dir)) {
+                    files.filter(path -> !path.getFileName().toString().equals(".git"))
+                        .forEach(path -> FileSystemUtils.deleteRecursively(path.toFile()));
+                }
+                tree.writeSnapshot(dir);
+                commit(git, "branch 1." + b);
+            }
+            git.checkout().setName("master").call();
+        }
+        return dir;
+    }
+
+    private void commit(Git git, String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call();
+        git.commit().setMessage(message).setAuthor("klask", "klask@localhost").call();
+    }
+
+    /**
+     * a local svn repository with the tree imported in one revision
+     */
+    private SVNURL createSvnRepository(Path dir, Path tree) throws SVNException {
+        FSRepositoryFactory.setup();
+        SVNURL url = SVNRepositoryFactory.createLocalRepository(dir.toFile(), true, false);
+        SVNClientManager clientManager = SVNClientManager.newInstance();
+        try {
+            clientManager.getCommitClient().doImport(tree.toFile(), url, "synthetic tree", null, false, true, SVNDepth.INFINITY);
+        } finally {
+            clientManager.dispose();
+        }
+        return url;
+    }
+
+    private SyntheticTree tree(Report report) {
+        return new SyntheticTree(report.seed)
+            .projects(report.projects)
+            .branches(report.branches)
+            .filesByBranch(report.filesByBranch)
+            .medianFileSize(report.medianFileSize)
+            .maxFileSize(report.maxFileSize)
+            .latin1Ratio(report.latin1Ratio);
+    }
+
+    /**
+     * documents in the index of the repository, refreshed at the end of the crawl
+     */
+    private long countDocuments(CrawlerProgress progress) {
+        String indexName = (Constants.INDEX_PREFIX + progress.getRepositoryName() + "-" + progress.getRepositoryId()).toLowerCase();
+        return elasticsearchTemplate.count(new NativeSearchQueryBuilder()
+            .withIndices(indexName)
+            .withQuery(QueryBuilders.matchAllQuery())
+            .build());
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.containsProperty(name) ? options.getProperty(name) : defaultValue;
+    }
+
+    private static long sizeOf(List<Path> files) throws IOException {
+        long size = 0L;
+        for (Path file : files) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+            .sum();
+    }
+
+    /**
+     * the JSON report, compared between releases
+     */
+    public static class Report {
+        public String date;
+        public String version;
+        public String java;
+        public int processors;
+        public long maxHeap;
+        public int projects;
+        public int branches;
+        public int filesByBranch;
+        public int medianFileSize;
+        public int maxFileSize;
+        public double latin1Ratio;
+        public long seed;
+        public long treeBytes;
+        public List<CrawlResult> results = new ArrayList<>();
+    }
+
+    public static class CrawlResult {
+        public String crawler;
+        public String phase;
+        public long documents;
+        public long filesIndexed;
+        public long failures;
+        public long bytesRead;
+        public double seconds;
+        public double docsPerSecond;
+        public double megaBytesPerSecond;
+        public long peakHeap;
+        public long gcTimeMillis;
+        public long gcCount;
+    }
+}
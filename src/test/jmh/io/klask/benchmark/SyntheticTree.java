@@ -0,0 +1,182 @@
+package io.klask.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic source tree for the benchmarks : projects with a trunk and branches, files of several
+ * languages and sizes, UTF-8 and ISO-8859-1 contents, binaries and excluded files.
+ * <p>
+ * The layout follows the svn conventions read by the crawlers :
+ * {@code <root>/<project>/trunk/...} and {@code <root>/<project>/branches/<branch>/...}
+ * </p>
+ */
+public class SyntheticTree {
+
+    private static final String[] EXTENSIONS = {"java", "java", "java", "js", "xml", "md", "properties", "py"};
+
+    private static final String[] WORDS = {"crawler", "index", "search", "file", "repository", "version", "project",
+        "content", "bulk", "query", "\u00e9l\u00e9ment", "donn\u00e9es", "gr\u00f6\u00dfe"};
+
+    private final Random random;
+
+    private int projects = 2;
+
+    private int branches = 2;
+
+    private int filesByBranch = 100;
+
+    //files sizes follow a log-normal distribution around the median, bounded by maxFileSize
+    private int medianFileSize = 4096;
+
+    private int maxFileSize = 512 * 1024;
+
+    //fraction of the text files written in ISO-8859-1 instead of UTF-8
+    private double latin1Ratio = 0.1;
+
+    public SyntheticTree(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public SyntheticTree projects(int projects) {
+        this.projects = projects;
+        return this;
+    }
+
+    public SyntheticTree branches(int branches) {
+        this.branches = branches;
+        return this;
+    }
+
+    public SyntheticTree filesByBranch(int filesByBranch) {
+        this.filesByBranch = filesByBranch;
+        return this;
+    }
+
+    public SyntheticTree medianFileSize(int medianFileSize) {
+        this.medianFileSize = medianFileSize;
+        return this;
+    }
+
+    public SyntheticTree maxFileSize(int maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    public SyntheticTree latin1Ratio(double latin1Ratio) {
+        this.latin1Ratio = latin1Ratio;
+        return this;
+    }
+
+    /**
+     * write the tree under root
+     *
+     * @param root
+     * @return the files written, the excluded ones included
+     * @throws IOException
+     */
+    public List<Path> write(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int p = 0; p < projects; p++) {
+            Path project = root.resolve("project" + p);
+            files.addAll(writeBranch(project.resolve("trunk"), p));
+            for (int b = 0; b < branches; b++) {
+                files.addAll(writeBranch(project.resolve("branches").resolve("1." + b), p));
+            }
+            //excluded directory, never read by the crawlers
+            Path nodeModules = project.resolve("trunk").resolve("node_modules").resolve("lib");
+            Files.createDirectories(nodeModules);
+            files.add(Files.write(nodeModules.resolve("index.js"), content("js", 1024, StandardCharsets.UTF_8)));
+        }
+        return files;
+    }
+
+    /**
+     * write one snapshot of all the projects under root, without the trunk and branches directories,
+     * as the content of one branch of a git repository
+     *
+     * @param root
+     * @return the files written, the excluded ones included
+     * @throws IOException
+     */
+    public List<Path> writeSnapshot(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int p = 0; p < projects; p++) {
+            files.addAll(writeBranch(root.resolve("project" + p), p));
+        }
+        return files;
+    }
+
+    private List<Path> writeBranch(Path branch, int project) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path sources = branch.resolve("src").resolve("main").resolve("io").resolve("klask").resolve("p" + project);
+        Files.createDirectories(sources);
+        files.add(Files.write(branch.resolve(".project"), "<projectDescription/>".getBytes(StandardCharsets.UTF_8)));
+        files.add(Files.write(branch.resolve("logo.png"), binary(2048)));
+        for (int f = 0; f < filesByBranch; f++) {
+            String extension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            Charset charset = random.nextDouble() < latin1Ratio ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+            Path dir = sources.resolve("module" + (f % 10));
+            Files.createDirectories(dir);
+            files.add(Files.write(dir.resolve("File" + f + "." + extension), content(extension, nextFileSize(), charset)));
+        }
+        return files;
+    }
+
+    /**
+     * next size of the log-normal distribution
+     *
+     * @return
+     */
+    public int nextFileSize() {
+        double size = medianFileSize * Math.exp(random.nextGaussian());
+        return (int) Math.max(16, Math.min(maxFileSize, size));
+    }
+
+    /**
+     * source-like content of about size bytes
+     *
+     * @param extension
+     * @param size
+     * @param charset
+     * @return
+     */
+    public byte[] content(String extension, int size, Charset charset) {
+        StringBuilder sb = new StringBuilder(size + 128);
+        int i = 0;
+        while (sb.length() < size) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            switch (extension) {
+                case "java":
+                    sb.append(i % 20 == 0 ? "public class " : "    public String ").append(word).append(i)
+                        .append(i % 20 == 0 ? " {\n" : "(String " + word + ") { return \"" + word + "\"; }\n");
+                    break;
+                case "js":
+                    sb.append("function ").append(word).append(i).append("(a) { return a + '").append(word).append("'; }\n");
+                    break;
+                case "py":
+                    sb.append("def ").append(word).append(i).append("(self):\n    return '").append(word).append("'\n");
+                    break;
+                case "xml":
+                    sb.append("<").append("entry").append(" name=\"").append(word).append(i).append("\"/>\n");
+                    break;
+                default:
+                    sb.append(word).append('.').append(i).append(" = ").append(word).append(' ').append(word).append('\n');
+            }
+            i++;
+        }
+        return sb.toString().getBytes(charset);
+    }
+
+    private byte[] binary(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
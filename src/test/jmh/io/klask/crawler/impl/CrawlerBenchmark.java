@@ -0,0 +1,182 @@
+package io.klask.crawler.impl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.klask.benchmark.SyntheticTree;
+import io.klask.config.KlaskProperties;
+import io.klask.domain.File;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+
+/**
+ * Micro benchmarks of the hot paths of the crawlers on a synthetic tree, without elasticsearch.
+ * Run with the jmh profile, {@code -prof gc} gives the allocation rate of each benchmark :
+ * <pre>./mvnw -Pdev,jmh test -DskipTests -Djmh.args="-prof gc CrawlerBenchmark"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CrawlerBenchmark {
+
+    private Path root;
+
+    private FileSystemCrawler crawler;
+
+    //all the files of the tree, excluded ones included
+    private Path[] files;
+
+    private String[] fileNames;
+
+    //the readable files, as given to constructFile by the crawler
+    private Path[] readableFiles;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("klask-jmh");
+        List<Path> tree = new SyntheticTree(42L).projects(2).branches(2).filesByBranch(250).write(root);
+        files = tree.toArray(new Path[tree.size()]);
+        fileNames = tree.stream().map(path -> path.getFileName().toString()).toArray(String[]::new);
+
+        crawler = new FileSystemCrawler(repository(root), properties(), null, null, new MetricRegistry());
+        crawler.initializeProperties();
+        List<Path> readable = tree.stream()
+            .filter(path -> !crawler.excludeDirectories(root, path) && !crawler.isFileInExclusion(path))
+            .collect(Collectors.toList());
+        readableFiles = readable.toArray(new Path[readable.size()]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(root.toFile());
+    }
+
+    @Benchmark
+    public String extractExtension() {
+        return crawler.extractExtension(fileNames[next(fileNames.length)]);
+    }
+
+    @Benchmark
+    public boolean isFileInExclusion() {
+        return crawler.isFileInExclusion(files[next(files.length)]);
+    }
+
+    @Benchmark
+    public boolean excludeDirectories() {
+        return crawler.excludeDirectories(root, files[next(files.length)]);
+    }
+
+    @Benchmark
+    public String convertSHA256() throws IOException {
+        return crawler.convertSHA256(files[next(files.length)].toString());
+    }
+
+    /**
+     * read, decode and construct the document of a readable file, version and project included
+     */
+    @Benchmark
+    public File constructFile() throws IOException {
+        Path path = readableFiles[next(readableFiles.length)];
+        String name = path.getFileName().toString();
+        return crawler.constructFile(name, crawler.extractExtension(name), path);
+    }
+
+    /**
+     * read the raw content of a file and decode it
+     */
+    @Benchmark
+    public File readContent(ContentState state) throws IOException {
+        File file = new File();
+        crawler.setContent(file, crawler.readBytes(state.file));
+        return file;
+    }
+
+    /**
+     * decode only : charset detection and decoding of the bytes already in memory
+     */
+    @Benchmark
+    public File decodeContent(ContentState state) {
+        File file = new File();
+        crawler.setContent(file, state.content);
+        return file;
+    }
+
+    private int next(int length) {
+        index = index + 1 < length ? index + 1 : 0;
+        return index;
+    }
+
+    /**
+     * one file of the given charset and size
+     */
+    @State(Scope.Thread)
+    public static class ContentState {
+
+        @Param({"UTF-8", "ISO-8859-1"})
+        public String charset;
+
+        @Param({"4096", "262144"})
+        public int size;
+
+        private Path file;
+
+        private byte[] content;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            content = new SyntheticTree(7L).content("java", size, Charset.forName(charset));
+            file = Files.createTempFile("klask-jmh", ".java");
+            Files.write(file, content);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static Repository repository(Path root) {
+        Repository repository = new Repository();
+        repository.setName("benchmark");
+        repository.setPath(root.toString());
+        repository.setType(RepositoryType.FILE_SYSTEM);
+        return repository;
+    }
+
+    static KlaskProperties properties() {
+        KlaskProperties properties = new KlaskProperties();
+        properties.getCrawler().setDirectoriesToExclude(Arrays.asList(".svn", ".git", "node_modules"));
+        properties.getCrawler().setExtensionsToExclude(Arrays.asList("sha1", "md5"));
+        properties.getCrawler().setFilesToExclude(Arrays.asList(".project", ".classpath"));
+        properties.getCrawler().setExtensionsToRead(Arrays.asList("java", "js", "xml", "md", "properties", "py"));
+        return properties;
+    }
+}
@@ -0,0 +1,114 @@
+package io.klask.crawler.svn;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.klask.benchmark.SyntheticTree;
+import io.klask.config.KlaskProperties;
+import io.klask.crawler.impl.SVNCrawler;
+import io.klask.domain.Repository;
+import io.klask.domain.enumeration.RepositoryType;
+
+/**
+ * Micro benchmark of the callbacks of the {@link SVNVisitorCrawler} for one added file, as they are called
+ * by svnkit during an update : addFile, applyTextDelta, textDeltaChunk, textDeltaEnd and closeFile.
+ * The windows are sent by a {@link SVNDeltaGenerator}, so the delta generation of svnkit is in the measure,
+ * as in a real update. The bulk is never sent to elasticsearch.
+ * <pre>./mvnw -Pdev,jmh test -DskipTests -Djmh.args="-prof gc SVNVisitorCrawlerBenchmark"</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SVNVisitorCrawlerBenchmark {
+
+    private static final int FILES = 64;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String charset;
+
+    @Param({"4096", "65536"})
+    public int size;
+
+    private SVNVisitorCrawler visitor;
+
+    private SVNDeltaGenerator deltaGenerator;
+
+    private String[] paths;
+
+    private byte[][] contents;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws SVNException {
+        Repository repository = new Repository();
+        repository.setName("benchmark");
+        repository.setPath("file:///benchmark/svn");
+        repository.setType(RepositoryType.SVN);
+
+        KlaskProperties properties = new KlaskProperties();
+        properties.getCrawler().setDirectoriesToExclude(Arrays.asList(".svn", "node_modules"));
+        properties.getCrawler().setFilesToExclude(Arrays.asList(".project"));
+        properties.getCrawler().setExtensionsToRead(Arrays.asList("java", "js", "xml", "md", "properties", "py"));
+
+        SVNCrawler crawler = new SVNCrawler(repository, properties, null, null, null, new MetricRegistry()) {
+            {
+                initializeProperties();
+            }
+
+            @Override
+            protected void indexingBulkFiles() {
+                //no elasticsearch here, the bulk is only cleared
+            }
+        };
+
+        visitor = new SVNVisitorCrawler(crawler, new SvnProgressCanceller());
+        visitor.openRoot(1);
+        visitor.addDir("project", null, -1);
+        visitor.addDir("project/trunk", null, -1);
+        visitor.addDir("project/trunk/src", null, -1);
+        deltaGenerator = new SVNDeltaGenerator();
+
+        SyntheticTree tree = new SyntheticTree(42L);
+        Charset encoding = Charset.forName(charset);
+        paths = new String[FILES];
+        contents = new byte[FILES][];
+        for (int i = 0; i < FILES; i++) {
+            paths[i] = "project/trunk/src/File" + i + ".java";
+            contents[i] = tree.content("java", size, encoding);
+        }
+    }
+
+    @Benchmark
+    public int addFile() throws SVNException {
+        index = index + 1 < FILES ? index + 1 : 0;
+        String path = paths[index];
+        visitor.addFile(path, null, -1);
+        visitor.applyTextDelta(path, null);
+        deltaGenerator.sendDelta(path, new ByteArrayInputStream(contents[index]), visitor, false);
+        visitor.closeFile(path, null);
+        return visitor.currentFile.getContent().length();
+    }
+}